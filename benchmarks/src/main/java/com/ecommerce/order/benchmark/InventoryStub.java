@@ -0,0 +1,131 @@
+package com.ecommerce.order.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local inventory service for the benchmarks that go over HTTP. It confirms every reservation,
+ * single or batched, after a fixed latency standing in for the round trip and the inventory's
+ * own work, and counts the calls it receives and the most it had in flight at once.
+ */
+final class InventoryStub {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMs;
+    
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    
+    private InventoryStub(HttpServer server, ExecutorService executor, long latencyMs) {
+        this.server = server;
+        this.executor = executor;
+        this.latencyMs = latencyMs;
+    }
+    
+    /**
+     * Start a stub on a free local port
+     * @param latencyMs How long each call takes to answer
+     * @return The running stub
+     */
+    static InventoryStub start(long latencyMs) {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+            // One thread per call, so the stub itself never queues calls
+            ExecutorService executor = Executors.newCachedThreadPool();
+            InventoryStub stub = new InventoryStub(server, executor, latencyMs);
+            server.createContext("/api/inventory/reserve", stub::handle);
+            server.createContext("/api/inventory/release", stub::handle);
+            server.setExecutor(executor);
+            server.start();
+            return stub;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+    
+    /**
+     * @return The base URL to configure as {@code external-service.inventory.url}
+     */
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/api/inventory";
+    }
+    
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    long calls() {
+        return calls.get();
+    }
+    
+    int peakInFlight() {
+        return peakInFlight.get();
+    }
+    
+    void resetCounts() {
+        calls.set(0);
+        peakInFlight.set(0);
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        calls.incrementAndGet();
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            sleep(latencyMs);
+            
+            String path = exchange.getRequestURI().getPath();
+            JsonNode response;
+            if (path.endsWith("/reserve/batch")) {
+                ArrayNode results = MAPPER.createArrayNode();
+                request.path("reservations").forEach(reservation -> results.add(confirm(reservation)));
+                response = MAPPER.createObjectNode().set("results", results);
+            } else if (path.endsWith("/release")) {
+                response = MAPPER.createObjectNode().put("released", request.path("orderIds").size());
+            } else {
+                response = confirm(request);
+            }
+            
+            byte[] body = MAPPER.writeValueAsBytes(response);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+    
+    private static ObjectNode confirm(JsonNode reservation) {
+        return MAPPER.createObjectNode()
+                .put("orderId", reservation.path("orderId").asText())
+                .put("success", true)
+                .put("message", "Stock reserved")
+                .set("items", MAPPER.createArrayNode());
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
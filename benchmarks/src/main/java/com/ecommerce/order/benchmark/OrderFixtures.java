@@ -0,0 +1,52 @@
+package com.ecommerce.order.benchmark;
+
+import com.ecommerce.order.domain.Order;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderItemRequest;
+import com.ecommerce.order.service.OrderMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Builds deterministic order fixtures shared by the benchmarks.
+ */
+final class OrderFixtures {
+    
+    private OrderFixtures() {
+    }
+    
+    /**
+     * Create an order request with the given number of items
+     * @param itemCount The number of items in the request
+     * @return The create order request
+     */
+    static CreateOrderRequest createOrderRequest(int itemCount) {
+        List<OrderItemRequest> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(OrderItemRequest.builder()
+                    .productId("product-" + i)
+                    .quantity(1 + i % 5)
+                    .build());
+        }
+        
+        return CreateOrderRequest.builder()
+                .customerId("customer-1")
+                .items(items)
+                .build();
+    }
+    
+    /**
+     * Create an order as it looks after being persisted, i.e. with ids assigned
+     * @param mapper The mapper used by the service
+     * @param itemCount The number of items in the order
+     * @return The order
+     */
+    static Order persistedOrder(OrderMapper mapper, int itemCount) {
+        Order order = mapper.mapToOrder(createOrderRequest(itemCount));
+        order.setId(UUID.randomUUID());
+        order.getItems().forEach(item -> item.setId(UUID.randomUUID()));
+        return order;
+    }
+}
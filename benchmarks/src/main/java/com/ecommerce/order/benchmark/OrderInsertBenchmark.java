@@ -0,0 +1,83 @@
+package com.ecommerce.order.benchmark;
+
+import com.ecommerce.order.OrderServiceApplication;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders inserted per second through the service and the in-memory H2 database, one order per
+ * transaction versus a batch of orders per transaction, with JDBC batching off (batch size 1)
+ * and on. Scores are orders per second in both cases.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderInsertBenchmark {
+    
+    private static final int ORDERS_PER_BATCH = 100;
+    
+    @Param({"1", "20", "200"})
+    private int itemCount;
+    
+    @Param({"1", "50"})
+    private int jdbcBatchSize;
+    
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private CreateOrderRequest request;
+    private List<CreateOrderRequest> batch;
+    
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                // Passed as arguments, which take precedence over application.yml
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+                        "--order-service.scheduler.retry-rate-ms=3600000",
+                        "--logging.level.root=WARN");
+        orderService = context.getBean(OrderService.class);
+        request = OrderFixtures.createOrderRequest(itemCount);
+        batch = Collections.nCopies(ORDERS_PER_BATCH, request);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public OrderResponse createOrder() {
+        return orderService.createOrder(request);
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_BATCH)
+    public List<OrderResponse> createOrders() {
+        return orderService.createOrders(batch);
+    }
+}
@@ -0,0 +1,74 @@
+package com.ecommerce.order.benchmark;
+
+import com.ecommerce.order.domain.Order;
+import com.ecommerce.order.domain.OrderItem;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderItemResponse;
+import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.dto.inventory.StockReservationRequest;
+import com.ecommerce.order.service.OrderMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline for the per-request mapping work done by the order service:
+ * building an order and its items (including the BigDecimal total reduction),
+ * mapping an order back to its response and building the inventory reservation request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderMappingBenchmark {
+    
+    @Param({"1", "10", "100", "500"})
+    private int itemCount;
+    
+    private OrderMapper mapper;
+    private CreateOrderRequest request;
+    private Order order;
+    
+    @Setup
+    public void setUp() {
+        mapper = new OrderMapper();
+        request = OrderFixtures.createOrderRequest(itemCount);
+        order = OrderFixtures.persistedOrder(mapper, itemCount);
+    }
+    
+    @Benchmark
+    public Order mapToOrder() {
+        return mapper.mapToOrder(request);
+    }
+    
+    @Benchmark
+    public OrderResponse mapToOrderResponse() {
+        return mapper.mapToOrderResponse(order);
+    }
+    
+    @Benchmark
+    public void mapToOrderItemResponse(Blackhole blackhole) {
+        for (OrderItem item : order.getItems()) {
+            OrderItemResponse response = mapper.mapToOrderItemResponse(item);
+            blackhole.consume(response);
+        }
+    }
+    
+    @Benchmark
+    public StockReservationRequest mapToReservationRequest() {
+        return mapper.mapToReservationRequest(order);
+    }
+}
@@ -0,0 +1,147 @@
+package com.ecommerce.order.benchmark;
+
+import com.ecommerce.order.OrderServiceApplication;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.dto.inventory.StockReservationRequest;
+import com.ecommerce.order.dto.inventory.StockReservationResponse;
+import com.ecommerce.order.service.InventoryServiceClient;
+import com.ecommerce.order.service.OrderService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Time and SQL statements per processed order: recording the reservation attempt and writing
+ * the result back. Inventory is replaced by a client that confirms every reservation without a
+ * network call, so the score is the service's own work. Each invocation processes a fresh set of
+ * orders created outside the measured section; the number of JDBC statements prepared while
+ * processing is printed per order at the end of the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderProcessBenchmark {
+    
+    private static final int ORDERS_PER_INVOCATION = 200;
+    
+    @Param({"1", "20", "200"})
+    private int itemCount;
+    
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private Statistics statistics;
+    private JdbcTemplate jdbcTemplate;
+    private List<CreateOrderRequest> batch;
+    
+    private List<UUID> orderIds;
+    private long statementsBefore;
+    private long statements;
+    private long processed;
+    
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(OrderServiceApplication.class, ConfirmingInventoryConfig.class)
+                .web(WebApplicationType.NONE)
+                // Passed as arguments, which take precedence over application.yml
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--spring.jpa.properties.hibernate.generate_statistics=true",
+                        "--management.tracing.sampling.probability=0",
+                        "--order-service.scheduler.retry-rate-ms=3600000",
+                        "--order-service.reservation-expiry.sweep-interval-ms=3600000",
+                        "--logging.level.root=WARN");
+        orderService = context.getBean(OrderService.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        batch = Collections.nCopies(ORDERS_PER_INVOCATION, OrderFixtures.createOrderRequest(itemCount));
+    }
+    
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%nSQL statements per processed order (itemCount=%d): %.2f%n",
+                itemCount, (double) statements / processed);
+        context.close();
+    }
+    
+    @Setup(Level.Invocation)
+    public void createOrders() {
+        orderIds = orderService.createOrders(batch).stream()
+                .map(OrderResponse::getId)
+                .collect(Collectors.toList());
+        statementsBefore = statistics.getPrepareStatementCount();
+    }
+    
+    @TearDown(Level.Invocation)
+    public void countStatementsAndClear() {
+        statements += statistics.getPrepareStatementCount() - statementsBefore;
+        processed += orderIds.size();
+        
+        // Keep the tables small so every invocation runs against the same amount of data
+        jdbcTemplate.update("delete from order_items");
+        jdbcTemplate.update("delete from orders");
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ORDERS_PER_INVOCATION)
+    public void processOrder(Blackhole blackhole) {
+        for (UUID orderId : orderIds) {
+            blackhole.consume(orderService.processOrder(orderId));
+        }
+    }
+    
+    /**
+     * Replaces the inventory client with one that confirms every reservation in-process.
+     * Registered as a source in {@link #setUp()} rather than annotated with @Configuration, so
+     * component scanning does not apply it to the other benchmarks that boot the service.
+     */
+    static class ConfirmingInventoryConfig {
+        
+        @Bean
+        @Primary
+        InventoryServiceClient confirmingInventoryClient() {
+            return new InventoryServiceClient(null, null, null, null, null, null, null) {
+                @Override
+                public void registerRetryMetrics() {
+                }
+                
+                @Override
+                public StockReservationResponse reserveStock(StockReservationRequest request) {
+                    return StockReservationResponse.builder()
+                            .orderId(request.getOrderId())
+                            .success(true)
+                            .build();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.ecommerce.order.benchmark;
+
+import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.service.OrderMapper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Baseline for the Jackson serialization of an order response, using an ObjectMapper
+ * configured the same way Spring Boot configures the one used by the controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderSerializationBenchmark {
+    
+    @Param({"1", "10", "100", "500"})
+    private int itemCount;
+    
+    private ObjectWriter writer;
+    private OrderResponse response;
+    
+    @Setup
+    public void setUp() {
+        OrderMapper mapper = new OrderMapper();
+        writer = Jackson2ObjectMapperBuilder.json().build().writerFor(OrderResponse.class);
+        response = mapper.mapToOrderResponse(OrderFixtures.persistedOrder(mapper, itemCount));
+    }
+    
+    @Benchmark
+    public byte[] serializeOrderResponse() throws JsonProcessingException {
+        return writer.writeValueAsBytes(response);
+    }
+}
@@ -0,0 +1,119 @@
+package com.ecommerce.order.benchmark;
+
+import com.ecommerce.order.OrderServiceApplication;
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Batched versus one-call-per-order stock reservation under concurrent load. Each operation
+ * creates an order and processes it, as {@code POST /api/orders} does in SYNC mode, with the
+ * real inventory client calling an {@link InventoryStub} over HTTP. With batching off every order
+ * is one {@code /reserve} call; with it on, concurrent orders are coalesced into
+ * {@code /reserve/batch} calls. {@code ordersPerSecond} reports throughput and {@code latency}
+ * the latency distribution, including p0.99. The inventory calls made per order and the orders
+ * that did not reach PENDING_PAYMENT are printed at the end of each run.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class ReservationBatchingBenchmark {
+    
+    @Param({"false", "true"})
+    private boolean batching;
+    
+    @Param({"10"})
+    private long inventoryLatencyMs;
+    
+    private InventoryStub inventory;
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private JdbcTemplate jdbcTemplate;
+    private CreateOrderRequest request;
+    
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong unreserved = new AtomicLong();
+    
+    @Setup
+    public void setUp() {
+        inventory = InventoryStub.start(inventoryLatencyMs);
+        context = new SpringApplicationBuilder(OrderServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                // Passed as arguments, which take precedence over application.yml
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark",
+                        "--external-service.inventory.url=" + inventory.url(),
+                        "--external-service.inventory.batch.enabled=" + batching,
+                        // Compare the call patterns, not the limiter's fail-fast rejections
+                        "--external-service.inventory.concurrency.enabled=false",
+                        "--management.tracing.sampling.probability=0",
+                        "--order-service.scheduler.retry-rate-ms=3600000",
+                        "--order-service.reservation-expiry.sweep-interval-ms=3600000",
+                        "--logging.level.root=WARN");
+        orderService = context.getBean(OrderService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        request = OrderFixtures.createOrderRequest(3);
+        inventory.resetCounts();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%nInventory calls per order (batching=%b): %.3f, orders not reserved: %d of %d%n",
+                batching, (double) inventory.calls() / orders.get(), unreserved.get(), orders.get());
+        context.close();
+        inventory.stop();
+    }
+    
+    @TearDown(Level.Iteration)
+    public void clearOrders() {
+        // Keep the tables small so every iteration runs against the same amount of data
+        jdbcTemplate.update("delete from order_items");
+        jdbcTemplate.update("delete from orders");
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public OrderResponse ordersPerSecond() {
+        return createAndProcess();
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public OrderResponse latency() {
+        return createAndProcess();
+    }
+    
+    private OrderResponse createAndProcess() {
+        OrderResponse processed = orderService.processOrder(orderService.createOrder(request).getId());
+        orders.incrementAndGet();
+        if (processed.getStatus() != OrderStatus.PENDING_PAYMENT) {
+            unreserved.incrementAndGet();
+        }
+        return processed;
+    }
+}
@@ -0,0 +1,166 @@
+package com.ecommerce.order.benchmark;
+
+import com.ecommerce.order.OrderServiceApplication;
+import com.ecommerce.order.domain.OrderStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load run of {@code POST /api/orders} in SYNC mode, where each request blocks its thread on the
+ * inventory call, on platform threads versus the virtual-threads profile. The service runs with
+ * Tomcat on a local port and an {@link InventoryStub} that answers after a fixed latency; 200
+ * clients keep one request each in flight. Tomcat is capped at {@code platformThreads} request
+ * threads, which bounds the platform-thread mode only: with virtual threads every request gets
+ * its own. {@code requestsPerSecond} reports throughput and {@code latency} the latency
+ * distribution, including p0.99. Printed at the end of each run are the peak number of
+ * concurrent inventory calls, i.e. the requests actually being served at once, the failed
+ * requests, the orders created without their stock reserved, e.g. after an inventory timeout, and
+ * in the virtual mode the pinned virtual threads the service reported, by path.
+ * <p>
+ * The {@code virtual} mode needs Java 21: run benchmarks.jar on a Java 21 JVM.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(200)
+@Fork(1)
+public class VirtualThreadLoadBenchmark {
+    
+    @Param({"platform", "virtual"})
+    private String threads;
+    
+    @Param({"50"})
+    private int platformThreads;
+    
+    @Param({"50"})
+    private long inventoryLatencyMs;
+    
+    private InventoryStub inventory;
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private HttpClient client;
+    private HttpRequest request;
+    
+    private final AtomicLong orders = new AtomicLong();
+    private final AtomicLong unreserved = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        boolean virtual = "virtual".equals(threads);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("The virtual mode needs Java 21, running on " + Runtime.version());
+        }
+        
+        inventory = InventoryStub.start(inventoryLatencyMs);
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark",
+                "--server.tomcat.threads.max=" + platformThreads,
+                "--external-service.inventory.url=" + inventory.url(),
+                "--order-service.processing.mode=SYNC",
+                // Compare the thread models, not the limiter's fail-fast rejections
+                "--external-service.inventory.concurrency.enabled=false",
+                "--management.tracing.sampling.probability=0",
+                "--order-service.scheduler.retry-rate-ms=3600000",
+                "--order-service.reservation-expiry.sweep-interval-ms=3600000",
+                "--logging.level.root=WARN"));
+        if (virtual) {
+            args.add("--spring.profiles.active=virtual-threads");
+        }
+        // Passed as arguments, which take precedence over application.yml
+        context = new SpringApplicationBuilder(OrderServiceApplication.class).run(args.toArray(String[]::new));
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        
+        String port = context.getEnvironment().getProperty("local.server.port");
+        String body = new ObjectMapper().writeValueAsString(OrderFixtures.createOrderRequest(3));
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/orders"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        inventory.resetCounts();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%nPeak concurrent inventory calls (threads=%s): %d, failed requests: %d, "
+                        + "orders not reserved: %d of %d%n",
+                threads, inventory.peakInFlight(), failed.get(), unreserved.get(), orders.get());
+        context.getBean(MeterRegistry.class).find("order.virtual-threads.pinned").counters()
+                .forEach(counter -> System.out.printf("Pinned virtual threads (path=%s): %.0f%n",
+                        counter.getId().getTag("path"), counter.count()));
+        context.close();
+        inventory.stop();
+    }
+    
+    @TearDown(Level.Iteration)
+    public void countAndClearOrders() {
+        orders.addAndGet(jdbcTemplate.queryForObject("select count(*) from orders", Long.class));
+        unreserved.addAndGet(jdbcTemplate.queryForObject(
+                "select count(*) from orders where status <> ?", Long.class, OrderStatus.PENDING_PAYMENT.name()));
+        
+        // Keep the tables small so every iteration runs against the same amount of data
+        jdbcTemplate.update("delete from order_items");
+        jdbcTemplate.update("delete from orders");
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int requestsPerSecond() throws InterruptedException {
+        return createOrder();
+    }
+    
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int latency() throws InterruptedException {
+        return createOrder();
+    }
+    
+    private int createOrder() throws InterruptedException {
+        try {
+            int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            if (status != 201) {
+                failed.incrementAndGet();
+            }
+            return status;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.ecommerce.order.config;
+
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Guards the meter registry against high-cardinality tags. Per-entity identifiers are stripped
+ * from every meter, and each meter name is capped at a fixed number of tag combinations.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Removes tags that carry per-entity identifiers, whatever meter they are added to.
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public MeterFilter identifierTagFilter(
+            @Value("${order-service.metrics.denied-tags:customerId,productId,orderId,idempotencyKey}") String[] deniedTags) {
+        return MeterFilter.ignoreTags(deniedTags);
+    }
+    
+    /**
+     * Denies new tag combinations for a meter once it has registered the maximum.
+     */
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public MeterFilter tagCardinalityGuard(
+            @Value("${order-service.metrics.max-tag-combinations:500}") int maxTagCombinations) {
+        return new TagCardinalityGuard(maxTagCombinations);
+    }
+}
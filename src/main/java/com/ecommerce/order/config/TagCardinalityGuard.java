@@ -0,0 +1,51 @@
+package com.ecommerce.order.config;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.config.MeterFilterReply;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caps the number of distinct tag combinations a single meter name may register. Once a meter
+ * reaches the cap, further combinations are denied (and become no-op meters), so an unbounded
+ * tag value can never grow the registry without limit. Combinations seen before the cap was
+ * reached keep reporting.
+ */
+@Slf4j
+public class TagCardinalityGuard implements MeterFilter {
+
+    private final int maxTagCombinations;
+    
+    private final Map<String, Set<Meter.Id>> idsByName = new ConcurrentHashMap<>();
+    
+    private final Set<String> reportedNames = ConcurrentHashMap.newKeySet();
+    
+    public TagCardinalityGuard(int maxTagCombinations) {
+        this.maxTagCombinations = maxTagCombinations;
+    }
+    
+    @Override
+    public MeterFilterReply accept(Meter.Id id) {
+        Set<Meter.Id> ids = idsByName.computeIfAbsent(id.getName(), name -> ConcurrentHashMap.newKeySet());
+        if (ids.contains(id)) {
+            return MeterFilterReply.NEUTRAL;
+        }
+        
+        synchronized (ids) {
+            if (ids.size() < maxTagCombinations) {
+                ids.add(id);
+                return MeterFilterReply.NEUTRAL;
+            }
+        }
+        
+        if (reportedNames.add(id.getName())) {
+            log.warn("Meter {} reached {} tag combinations; denying new ones such as {}", 
+                    id.getName(), maxTagCombinations, id.getTags());
+        }
+        return MeterFilterReply.DENY;
+    }
+}
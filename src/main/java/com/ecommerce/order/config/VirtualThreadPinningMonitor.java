@@ -0,0 +1,88 @@
+package com.ecommerce.order.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier thread, which happens when they
+ * block inside synchronized code or native frames (e.g. some JDBC drivers and connection pools).
+ * Each pinning event is logged with its stack and counted in the
+ * {@code order.virtual-threads.pinned} meter, tagged by whether it happened on a JPA/JDBC path.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@Slf4j
+@RequiredArgsConstructor
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    
+    private static final List<String> JDBC_PACKAGES = List.of(
+            "java.sql.", "org.hibernate.", "com.zaxxer.hikari.", "org.h2.", "org.springframework.orm.jpa.");
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${order-service.virtual-threads.pinning.threshold-ms:20}")
+    private long thresholdMs;
+    
+    @Value("${order-service.virtual-threads.pinning.stack-depth:12}")
+    private int stackDepth;
+    
+    private RecordingStream recordingStream;
+    
+    private Counter jdbcPinnedCounter;
+    
+    private Counter otherPinnedCounter;
+    
+    @PostConstruct
+    public void start() {
+        jdbcPinnedCounter = meterRegistry.counter("order.virtual-threads.pinned", "path", "jdbc");
+        otherPinnedCounter = meterRegistry.counter("order.virtual-threads.pinned", "path", "other");
+        
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        log.info("Monitoring virtual thread pinning longer than {} ms", thresholdMs);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        recordingStream.close();
+    }
+    
+    private void onPinned(RecordedEvent event) {
+        List<RecordedFrame> frames = event.getStackTrace() != null ? event.getStackTrace().getFrames() : List.of();
+        boolean jdbcPath = frames.stream().anyMatch(this::isJdbcFrame);
+        
+        (jdbcPath ? jdbcPinnedCounter : otherPinnedCounter).increment();
+        
+        String stack = frames.stream()
+                .limit(stackDepth)
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber())
+                .collect(Collectors.joining("\n\tat "));
+        log.warn("Virtual thread pinned for {} ms on {} path\n\tat {}",
+                event.getDuration().toMillis(), jdbcPath ? "JPA/JDBC" : "non-JDBC", stack);
+    }
+    
+    private boolean isJdbcFrame(RecordedFrame frame) {
+        String type = frame.getMethod().getType().getName();
+        return JDBC_PACKAGES.stream().anyMatch(type::startsWith);
+    }
+}
@@ -1,14 +1,85 @@
 package com.ecommerce.order.config;
 
+import io.micrometer.observation.ObservationRegistry;
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.function.Function;
 
 @Configuration
+@Slf4j
 public class WebClientConfig {
 
     @Bean
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Connection pool dedicated to the inventory service. Connections are kept alive and reused
+     * across calls; idle and long-lived connections are evicted in the background. Pool usage and
+     * acquire latency are published as {@code reactor.netty.connection.provider.*} metrics.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider inventoryConnectionProvider(
+            @Value("${external-service.inventory.http.max-connections:200}") int maxConnections,
+            @Value("${external-service.inventory.http.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+            @Value("${external-service.inventory.http.pending-acquire-timeout-ms:2000}") long pendingAcquireTimeoutMs,
+            @Value("${external-service.inventory.http.max-idle-time-ms:30000}") long maxIdleTimeMs,
+            @Value("${external-service.inventory.http.max-life-time-ms:300000}") long maxLifeTimeMs,
+            @Value("${external-service.inventory.http.evict-interval-ms:30000}") long evictIntervalMs) {
+        return ConnectionProvider.builder("inventory")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .maxLifeTime(Duration.ofMillis(maxLifeTimeMs))
+                .evictInBackground(Duration.ofMillis(evictIntervalMs))
+                .metrics(true)
+                .build();
+    }
+    
+    /**
+     * Pre-built client for the inventory service, shared by every inventory call. Relative URIs
+     * resolve against {@code external-service.inventory.url}. Calls are observed, so they are
+     * traced and propagate the trace context to inventory.
+     */
+    @Bean
+    public WebClient inventoryWebClient(
+            WebClient.Builder webClientBuilder,
+            ConnectionProvider inventoryConnectionProvider,
+            ObservationRegistry observationRegistry,
+            @Value("${external-service.inventory.url}") String inventoryServiceUrl,
+            @Value("${external-service.inventory.timeout:3000}") long timeoutMs,
+            @Value("${external-service.inventory.http.connect-timeout-ms:1000}") int connectTimeoutMs,
+            @Value("${external-service.inventory.http.h2c:false}") boolean h2c) {
+        HttpClient httpClient = HttpClient.create(inventoryConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(timeoutMs))
+                .keepAlive(true)
+                // The inventory URIs carry no identifiers, so they are safe to use as metric tags
+                .metrics(true, Function.identity());
+        
+        if (h2c) {
+            // Multiplex concurrent calls over cleartext HTTP/2, upgrading from HTTP/1.1 when needed
+            httpClient = httpClient.protocol(HttpProtocol.H2C, HttpProtocol.HTTP11);
+        }
+        
+        log.info("Inventory client for {}: {}", inventoryServiceUrl, h2c ? "h2c" : "HTTP/1.1");
+        return webClientBuilder.clone()
+                .baseUrl(inventoryServiceUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                // Each call gets a client span, and the trace context is sent in the request headers
+                .observationRegistry(observationRegistry)
+                .build();
+    }
+}
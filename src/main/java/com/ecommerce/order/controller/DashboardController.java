@@ -2,16 +2,19 @@ package com.ecommerce.order.controller;
 
 import com.ecommerce.order.domain.OrderStatus;
 import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.dto.TraceSummary;
 import com.ecommerce.order.service.OrderService;
+import com.ecommerce.order.service.OrderStatusCounter;
+import com.ecommerce.order.service.SlowTraceRecorder;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
@@ -25,26 +28,21 @@ import java.util.Map;
 public class DashboardController {
 
     private final OrderService orderService;
+    private final OrderStatusCounter orderStatusCounter;
+    private final SlowTraceRecorder slowTraceRecorder;
     
     /**
-     * Get a summary of orders by status
+     * Get a summary of orders by status. By default this reads the in-memory counters, which
+     * are updated on every status transition; pass exact=true to count in the database instead.
      *
+     * @param exact Whether to run the GROUP BY query instead of reading the counters
      * @return A map of order counts by status
      */
     @GetMapping("/order-summary")
-    public OrderSummary getOrderSummary() {
-        Map<OrderStatus, Integer> countByStatus = new EnumMap<>(OrderStatus.class);
-        
-        // Initialize all statuses with 0 count
-        for (OrderStatus status : OrderStatus.values()) {
-            countByStatus.put(status, 0);
-        }
-        
-        // Count orders by status
-        for (OrderStatus status : OrderStatus.values()) {
-            List<OrderResponse> orders = orderService.getOrdersByStatus(status);
-            countByStatus.put(status, orders.size());
-        }
+    public OrderSummary getOrderSummary(@RequestParam(defaultValue = "false") boolean exact) {
+        Map<OrderStatus, Long> countByStatus = exact
+                ? orderStatusCounter.countFromDatabase()
+                : orderStatusCounter.snapshot();
         
         return new OrderSummary(countByStatus);
     }
@@ -69,12 +67,22 @@ public class DashboardController {
         return orderService.getOrdersByStatus(OrderStatus.INVALID);
     }
     
+    /**
+     * Get the slowest recently sampled traces, with a per-span latency breakdown
+     *
+     * @return Traces that took at least the slow threshold, slowest first
+     */
+    @GetMapping("/slow-traces")
+    public List<TraceSummary> getSlowTraces() {
+        return slowTraceRecorder.slowest();
+    }
+    
     /**
      * DTO for order summary response
      */
     @Data
     @AllArgsConstructor
     public static class OrderSummary {
-        private Map<OrderStatus, Integer> orderCountByStatus;
+        private Map<OrderStatus, Long> orderCountByStatus;
     }
 } 
\ No newline at end of file
@@ -2,17 +2,38 @@ package com.ecommerce.order.controller;
 
 import com.ecommerce.order.domain.OrderStatus;
 import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.CreateOrdersRequest;
+import com.ecommerce.order.dto.OrderImportResult;
+import com.ecommerce.order.dto.OrderPage;
 import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.service.OrderAcceptor;
+import com.ecommerce.order.service.OrderImporter;
 import com.ecommerce.order.service.OrderService;
+import com.ecommerce.order.service.OrderWatchRegistry;
+import com.ecommerce.order.service.ProcessingMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -20,17 +41,107 @@ import java.util.UUID;
 @Slf4j
 public class OrderController {
     
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+    
     private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    private final OrderWatchRegistry orderWatchRegistry;
+    private final OrderAcceptor orderAcceptor;
+    private final OrderImporter orderImporter;
+    
+    @Value("${order-service.processing.mode:SYNC}")
+    private ProcessingMode processingMode;
+    
+    @Value("${order-service.watch.timeout-ms:30000}")
+    private long watchTimeoutMs;
     
     @PostMapping
-    public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody CreateOrderRequest request) {
+    public CompletableFuture<ResponseEntity<OrderResponse>> createOrder(@Valid @RequestBody CreateOrderRequest request) {
         log.info("Received request to create order for customer: {}", request.getCustomerId());
+        if (processingMode == ProcessingMode.ACCEPT) {
+            return CompletableFuture.completedFuture(acceptOrder(request));
+        }
+        
         OrderResponse response = orderService.createOrder(request);
         
+        // A repeated idempotency key returns the original order; it has already been processed
+        if (response.isReplayed()) {
+            return CompletableFuture.completedFuture(ResponseEntity.ok(response));
+        }
+        
+        // In OUTBOX mode the reservation was queued with the order and is made by the outbox relay
+        if (processingMode == ProcessingMode.OUTBOX) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.CREATED).body(response));
+        }
+        
         // After creating the order, initiate processing to reserve stock
-        orderService.processOrder(response.getId());
+        return process(response.getId())
+                .thenApply(processed -> ResponseEntity.status(HttpStatus.CREATED).body(processed));
+    }
+    
+    /**
+     * Creates a batch of orders with batched inserts. Outside OUTBOX mode their stock is then
+     * reserved as one batch; in OUTBOX mode the outbox relay reserves it.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<OrderResponse>> createOrders(@Valid @RequestBody CreateOrdersRequest request) {
+        log.info("Received request to create {} orders", request.getOrders().size());
+        List<OrderResponse> responses = orderService.createOrders(request.getOrders());
+        
+        if (processingMode != ProcessingMode.OUTBOX) {
+            List<UUID> orderIds = responses.stream()
+                    .filter(response -> !response.isReplayed())
+                    .map(OrderResponse::getId)
+                    .collect(Collectors.toList());
+            if (!orderIds.isEmpty()) {
+                orderService.processOrders(orderIds);
+            }
+        }
         
-        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return ResponseEntity.status(HttpStatus.CREATED).body(responses);
+    }
+    
+    /**
+     * Imports orders from a JSON array or NDJSON body. The body is parsed as a stream and the
+     * orders are saved in chunks; one result line per order is streamed back as each chunk is
+     * saved. Invalid orders are reported and skipped without aborting the import.
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON}, produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> importOrders(InputStream body) {
+        log.info("Received request to import orders");
+        ObjectWriter writer = objectMapper.writerFor(OrderImportResult.class);
+        
+        StreamingResponseBody results = outputStream -> orderImporter.importOrders(body, chunk -> {
+            try {
+                for (OrderImportResult result : chunk) {
+                    outputStream.write(writer.writeValueAsBytes(result));
+                    outputStream.write('\n');
+                }
+                outputStream.flush();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(results);
+    }
+    
+    /**
+     * Persists the order and queues its reservation. The order is returned with 202 Accepted and
+     * a Location to follow its progress; a full queue is rejected with 429 before anything is written.
+     */
+    private ResponseEntity<OrderResponse> acceptOrder(CreateOrderRequest request) {
+        OrderResponse response = orderAcceptor.accept(request);
+        if (response.isReplayed()) {
+            return ResponseEntity.ok(response);
+        }
+        
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{orderId}")
+                .buildAndExpand(response.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(response);
     }
     
     @GetMapping("/{orderId}")
@@ -40,24 +151,108 @@ public class OrderController {
         return ResponseEntity.ok(response);
     }
     
+    /**
+     * Long-polls for a status change. Without If-None-Match, or when it no longer matches the
+     * order's current status, the order is returned at once with its status as ETag. Otherwise
+     * the request is parked, without holding a thread, until the status changes (200) or the
+     * watch times out (304).
+     */
+    @GetMapping("/{orderId}/watch")
+    public DeferredResult<ResponseEntity<OrderResponse>> watchOrder(@PathVariable UUID orderId,
+                                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        log.debug("Received request to watch order with ID: {}", orderId);
+        DeferredResult<ResponseEntity<OrderResponse>> result = new DeferredResult<>(watchTimeoutMs,
+                () -> ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ifNoneMatch).build());
+        
+        OrderResponse order = orderService.getOrder(orderId);
+        if (!etagOf(order).equals(ifNoneMatch)) {
+            result.setResult(toWatchResponse(order));
+            return result;
+        }
+        
+        Runnable unwatch = orderWatchRegistry.watch(orderId, changed -> result.setResult(toWatchResponse(changed)));
+        result.onCompletion(unwatch);
+        
+        // The status may have changed between the first read and registering the watcher
+        OrderResponse current = orderService.getOrder(orderId);
+        if (!etagOf(current).equals(ifNoneMatch)) {
+            result.setResult(toWatchResponse(current));
+        }
+        return result;
+    }
+    
+    private static ResponseEntity<OrderResponse> toWatchResponse(OrderResponse order) {
+        return ResponseEntity.ok().eTag(etagOf(order)).body(order);
+    }
+    
+    private static String etagOf(OrderResponse order) {
+        return "\"" + order.getStatus() + "\"";
+    }
+    
     @GetMapping("/customer/{customerId}")
-    public ResponseEntity<List<OrderResponse>> getOrdersByCustomer(@PathVariable String customerId) {
+    public ResponseEntity<List<OrderResponse>> getOrdersByCustomer(@PathVariable String customerId,
+                                                                   @RequestParam(required = false) String cursor,
+                                                                   @RequestParam(required = false) Integer limit) {
         log.info("Received request to get orders for customer: {}", customerId);
-        List<OrderResponse> response = orderService.getOrdersByCustomer(customerId);
-        return ResponseEntity.ok(response);
+        OrderPage page = orderService.getOrdersByCustomer(customerId, cursor, limit);
+        return toResponse(page);
     }
     
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<OrderResponse>> getOrdersByStatus(@PathVariable OrderStatus status) {
+    public ResponseEntity<List<OrderResponse>> getOrdersByStatus(@PathVariable OrderStatus status,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(required = false) Integer limit) {
         log.info("Received request to get orders with status: {}", status);
-        List<OrderResponse> response = orderService.getOrdersByStatus(status);
-        return ResponseEntity.ok(response);
+        OrderPage page = orderService.getOrdersByStatus(status, cursor, limit);
+        return toResponse(page);
+    }
+    
+    /**
+     * Exports every order in a status as newline-delimited JSON. Orders are streamed from the
+     * database and written one per line, so memory use does not grow with the result size.
+     */
+    @GetMapping(value = "/status/{status}/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportOrdersByStatus(@PathVariable OrderStatus status) {
+        log.info("Received request to export orders with status: {}", status);
+        ObjectWriter writer = objectMapper.writerFor(OrderResponse.class);
+        
+        StreamingResponseBody body = outputStream -> orderService.streamOrdersByStatus(status, order -> {
+            try {
+                outputStream.write(writer.writeValueAsBytes(order));
+                outputStream.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+        
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+    
+    /**
+     * The page's orders go in the body; the cursor for the next page, if any, goes in a header.
+     */
+    private ResponseEntity<List<OrderResponse>> toResponse(OrderPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getOrders());
     }
     
     @PostMapping("/{orderId}/process")
-    public ResponseEntity<OrderResponse> processOrder(@PathVariable UUID orderId) {
+    public CompletableFuture<ResponseEntity<OrderResponse>> processOrder(@PathVariable UUID orderId) {
         log.info("Received request to process order with ID: {}", orderId);
-        OrderResponse response = orderService.processOrder(orderId);
-        return ResponseEntity.ok(response);
+        return process(orderId).thenApply(ResponseEntity::ok);
+    }
+    
+    /**
+     * Processes the order according to the configured mode. In REACTIVE mode the returned future
+     * completes later and the request is handled as a deferred result, freeing the servlet thread.
+     */
+    private CompletableFuture<OrderResponse> process(UUID orderId) {
+        if (processingMode == ProcessingMode.REACTIVE) {
+            return orderService.processOrderAsync(orderId);
+        }
+        return CompletableFuture.completedFuture(orderService.processOrder(orderId));
     }
 } 
\ No newline at end of file
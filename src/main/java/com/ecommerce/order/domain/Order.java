@@ -3,29 +3,94 @@ package com.ecommerce.order.domain;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.jpa.HibernateHints;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "orders")
-@Data
+@Table(name = "orders", indexes = {
+        @Index(name = "idx_orders_status_next_retry_at", columnList = "status, next_retry_at"),
+        @Index(name = "idx_orders_status_reservation_expires_at", columnList = "status, reservation_expires_at, id"),
+        @Index(name = "idx_orders_customer_created_at", columnList = "customer_id, created_at, id"),
+        @Index(name = "idx_orders_status_created_at", columnList = "status, created_at, id")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_orders_idempotency_key", columnNames = "idempotency_key")
+})
+// Queries on the order processing hot path. Spring Data re-renders a @Query string on every
+// execution, whereas a named query goes straight to Hibernate's cached translation. Orders are
+// read as read-only snapshots and every status change is a conditional UPDATE, so concurrent
+// processors of the same order (request path, manual retries, schedulers on other instances)
+// cannot both claim it or both complete it
+@NamedQuery(name = "Order.findWithItemsById",
+        query = "select o from Order o left join fetch o.items where o.id = :id",
+        hints = @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+@NamedQuery(name = "Order.findAllWithItemsByIdIn",
+        query = "select o from Order o left join fetch o.items where o.id in :ids",
+        hints = @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+@NamedQuery(name = "Order.claimReservationAttempt",
+        query = "update Order o set o.status = com.ecommerce.order.domain.OrderStatus.PENDING_RESERVING_STOCK, "
+                + "o.reservationAttempts = o.reservationAttempts + 1, o.lastReservationAttempt = :now, "
+                + "o.nextRetryAt = :nextRetryAt, o.updatedAt = :now, o.version = o.version + 1 "
+                + "where o.id = :id and o.status = :expectedStatus "
+                + "and (o.nextRetryAt is null or o.nextRetryAt <= :now) "
+                + "and o.reservationAttempts < :maxAttempts")
+@NamedQuery(name = "Order.claimReservationAttempts",
+        query = "update Order o set o.status = com.ecommerce.order.domain.OrderStatus.PENDING_RESERVING_STOCK, "
+                + "o.reservationAttempts = o.reservationAttempts + 1, o.lastReservationAttempt = :now, "
+                + "o.nextRetryAt = :nextRetryAt, o.updatedAt = :now, o.version = o.version + 1 "
+                + "where o.id in :ids and o.status = :expectedStatus "
+                + "and (o.nextRetryAt is null or o.nextRetryAt <= :now) "
+                + "and o.reservationAttempts < :maxAttempts")
+@NamedQuery(name = "Order.transitionStatus",
+        query = "update Order o set o.status = :status, "
+                + "o.failureReason = coalesce(:failureReason, o.failureReason), "
+                + "o.reservationExpiresAt = :reservationExpiresAt, o.nextRetryAt = null, "
+                + "o.updatedAt = :now, o.version = o.version + 1 "
+                + "where o.id = :id and o.status = :expectedStatus")
+@NamedQuery(name = "Order.transitionStatuses",
+        query = "update Order o set o.status = :status, "
+                + "o.failureReason = coalesce(:failureReason, o.failureReason), "
+                + "o.reservationExpiresAt = :reservationExpiresAt, o.nextRetryAt = null, "
+                + "o.updatedAt = :now, o.version = o.version + 1 "
+                + "where o.id in :ids and o.status = :expectedStatus")
+@NamedQuery(name = "Order.abandonReservation",
+        query = "update Order o set o.status = com.ecommerce.order.domain.OrderStatus.INVALID, "
+                + "o.failureReason = :failureReason, o.nextRetryAt = null, "
+                + "o.updatedAt = :now, o.version = o.version + 1 "
+                + "where o.id = :id and o.status = com.ecommerce.order.domain.OrderStatus.PENDING_RESERVING_STOCK "
+                + "and o.nextRetryAt <= :now")
+// Not @Data: generated equals/hashCode/toString would walk the lazy items collection
+@Getter
+@Setter
+@ToString(exclude = "items")
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Order {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @TimeOrderedUuid
     private UUID id;
+    
+    // Incremented on every update; a write based on a stale read fails instead of overwriting
+    @Version
+    private Long version;
 
     private String customerId;
     
+    // Client supplied key used to detect duplicate submissions; unique when present
+    private String idempotencyKey;
+    
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
     
@@ -35,6 +100,8 @@ public class Order {
     private BigDecimal totalAmount;
     
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @BatchSize(size = 100)
+    @Builder.Default
     private List<OrderItem> items = new ArrayList<>();
     
     private String failureReason;
@@ -45,22 +112,41 @@ public class Order {
     // Last time a reservation was attempted
     private LocalDateTime lastReservationAttempt;
     
+    // When the scheduler should next retry the reservation; only set while PENDING_RESERVING_STOCK
+    private LocalDateTime nextRetryAt;
+    
+    // When the reserved stock is released unless the order is paid; only set while PENDING_PAYMENT
+    private LocalDateTime reservationExpiresAt;
+    
+    // Instance that has leased the order for a scheduled retry, and until when. Expired leases,
+    // e.g. of an instance that crashed, are taken over by the next instance that leases due orders
+    private String leaseOwner;
+    private LocalDateTime leaseExpiresAt;
+    
     @PrePersist
     public void prePersist() {
-        if (this.id == null) {
-            this.id = UUID.randomUUID();
-        }
         this.createdAt = LocalDateTime.now();
         this.updatedAt = this.createdAt;
         if (this.status == null) {
             this.status = OrderStatus.CREATED;
         }
         this.reservationAttempts = 0;
+        clearDeadlinesForStatus();
     }
     
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
+        clearDeadlinesForStatus();
+    }
+    
+    private void clearDeadlinesForStatus() {
+        if (this.status != OrderStatus.PENDING_RESERVING_STOCK) {
+            this.nextRetryAt = null;
+        }
+        if (this.status != OrderStatus.PENDING_PAYMENT) {
+            this.reservationExpiresAt = null;
+        }
     }
     
     public void addItem(OrderItem item) {
@@ -74,10 +160,16 @@ public class Order {
     }
     
     /**
-     * Increments the reservation attempt counter and updates the last attempt timestamp.
+     * Increments the reservation attempt counter, updates the last attempt timestamp and
+     * schedules the next retry in case this attempt leaves the order pending. Until then no
+     * one else may claim the order for another attempt.
+     *
+     * @param attemptedAt When the attempt was claimed
+     * @param retryDelay Minimum time before the scheduler may retry the order
      */
-    public void incrementReservationAttempts() {
+    public void incrementReservationAttempts(LocalDateTime attemptedAt, Duration retryDelay) {
         this.reservationAttempts++;
-        this.lastReservationAttempt = LocalDateTime.now();
+        this.lastReservationAttempt = attemptedAt;
+        this.nextRetryAt = attemptedAt.plus(retryDelay);
     }
 } 
\ No newline at end of file
@@ -14,5 +14,8 @@ public enum OrderStatus {
     PENDING_PAYMENT,
     
     // Indicates that the order has failed business validation or encountered an unrecoverable error
-    INVALID
+    INVALID,
+    
+    // Indicates that the order was not paid in time and its reserved stock has been released
+    EXPIRED
 } 
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.ecommerce.order.domain;
+
+import java.util.UUID;
+
+/**
+ * Published whenever an order moves to a new status.
+ *
+ * @param orderId The order that changed
+ * @param previousStatus The status before the change, or null for a newly created order
+ * @param newStatus The status after the change
+ */
+public record OrderStatusChangedEvent(UUID orderId, OrderStatus previousStatus, OrderStatus newStatus) {
+}
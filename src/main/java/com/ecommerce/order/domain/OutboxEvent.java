@@ -0,0 +1,41 @@
+package com.ecommerce.order.domain;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Row of the transactional outbox. It is written in the same transaction as the order it refers
+ * to, and deleted by the relay once the work it describes has been carried out.
+ */
+@Entity
+@Table(name = "order_outbox", indexes = {
+        @Index(name = "idx_order_outbox_created_at", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OutboxEvent {
+
+    @Id
+    @TimeOrderedUuid
+    private UUID id;
+    
+    private UUID orderId;
+    
+    @Enumerated(EnumType.STRING)
+    private OutboxEventType type;
+    
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
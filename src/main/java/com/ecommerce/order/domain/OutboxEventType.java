@@ -0,0 +1,9 @@
+package com.ecommerce.order.domain;
+
+/**
+ * Work recorded in the outbox together with the order change that requires it.
+ */
+public enum OutboxEventType {
+    // Reserve stock in the inventory service for a newly created order
+    RESERVE_STOCK
+}
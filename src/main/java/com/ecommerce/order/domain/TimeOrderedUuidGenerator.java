@@ -0,0 +1,52 @@
+package com.ecommerce.order.domain;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.UUID;
+
+/**
+ * Generates version 7 UUIDs (RFC 9562): a 48-bit Unix millisecond timestamp followed by the
+ * version, variant and 74 random bits. IDs generated later sort after earlier ones, while
+ * remaining as hard to guess as random UUIDs.
+ */
+public class TimeOrderedUuidGenerator implements BeforeExecutionGenerator {
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return next();
+    }
+    
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+    
+    /**
+     * @return A new version 7 UUID for the current time
+     */
+    public static UUID next() {
+        byte[] random = new byte[10];
+        RANDOM.nextBytes(random);
+        
+        long mostSigBits = System.currentTimeMillis() << 16
+                | 0x7000L // version 7
+                | (random[0] & 0x0FL) << 8
+                | random[1] & 0xFFL;
+        
+        long leastSigBits = 0x8000000000000000L; // IETF variant
+        for (int i = 2; i < 10; i++) {
+            leastSigBits |= (random[i] & 0xFFL) << ((9 - i) * 8);
+        }
+        leastSigBits &= 0xBFFFFFFFFFFFFFFFL;
+        
+        return new UUID(mostSigBits, leastSigBits);
+    }
+}
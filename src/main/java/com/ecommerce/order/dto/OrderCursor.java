@@ -0,0 +1,43 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Keyset pagination position on (createdAt, id). Clients receive it as an opaque token.
+ */
+public record OrderCursor(LocalDateTime createdAt, UUID id) {
+    
+    private static final String SEPARATOR = "|";
+    
+    /**
+     * @return The opaque token for this position
+     */
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Parses a token previously produced by {@link #encode()}.
+     *
+     * @param token The opaque cursor token
+     * @return The decoded position
+     * @throws InvalidCursorException if the token is malformed
+     */
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new OrderCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (RuntimeException ex) {
+            throw new InvalidCursorException("Invalid pagination cursor: " + token, ex);
+        }
+    }
+}
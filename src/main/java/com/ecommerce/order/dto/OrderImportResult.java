@@ -0,0 +1,40 @@
+package com.ecommerce.order.dto;
+
+import com.ecommerce.order.domain.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Outcome of one order in a bulk import, identified by its position in the request body.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderImportResult {
+    
+    public enum Outcome {
+        // A new order was created
+        CREATED,
+        // The idempotency key was already used; the existing order is reported
+        REPLAYED,
+        // The order could not be parsed or failed validation
+        REJECTED,
+        // The order was valid but could not be saved
+        FAILED
+    }
+    
+    private int index;
+    private Outcome outcome;
+    private UUID orderId;
+    private OrderStatus status;
+    private String message;
+    private Map<String, String> errors;
+}
@@ -0,0 +1,20 @@
+package com.ecommerce.order.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OrderPage {
+    
+    private List<OrderResponse> orders;
+    
+    // Cursor for the next page, or null if this is the last page
+    private String nextCursor;
+}
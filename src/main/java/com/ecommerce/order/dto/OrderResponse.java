@@ -1,6 +1,7 @@
 package com.ecommerce.order.dto;
 
 import com.ecommerce.order.domain.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -29,4 +30,8 @@ public class OrderResponse {
     // Reservation attempt information
     private int reservationAttempts;
     private LocalDateTime lastReservationAttempt;
+    
+    // Set when the response answers a repeated idempotency key instead of a new order
+    @JsonIgnore
+    private boolean replayed;
 } 
\ No newline at end of file
@@ -0,0 +1,44 @@
+package com.ecommerce.order.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A recorded trace: the local root span and every span finished under it in this service,
+ * with offsets relative to the start of the root so the latency breakdown reads top to bottom.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TraceSummary {
+    
+    private String traceId;
+    private String name;
+    private Instant startedAt;
+    private double durationMs;
+    private List<SpanSummary> spans;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class SpanSummary {
+        private String spanId;
+        private String parentId;
+        private String name;
+        private String kind;
+        private double startOffsetMs;
+        private double durationMs;
+        private String error;
+        private Map<String, String> tags;
+    }
+}
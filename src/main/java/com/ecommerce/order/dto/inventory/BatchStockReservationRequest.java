@@ -0,0 +1,20 @@
+package com.ecommerce.order.dto.inventory;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Multi-order reservation request sent to the inventory service's batch endpoint.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchStockReservationRequest {
+    
+    private List<StockReservationRequest> reservations;
+}
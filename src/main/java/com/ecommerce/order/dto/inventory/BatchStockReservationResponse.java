@@ -0,0 +1,20 @@
+package com.ecommerce.order.dto.inventory;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response of the inventory service's batch endpoint, one result per order in the request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BatchStockReservationResponse {
+    
+    private List<StockReservationResponse> results;
+}
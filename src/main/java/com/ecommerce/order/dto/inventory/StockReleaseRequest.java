@@ -0,0 +1,21 @@
+package com.ecommerce.order.dto.inventory;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Request to release the stock reserved for a set of orders.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReleaseRequest {
+    
+    private List<UUID> orderIds;
+}
@@ -0,0 +1,19 @@
+package com.ecommerce.order.dto.inventory;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response from the inventory service's release endpoint.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReleaseResponse {
+    
+    // Number of orders whose reservations were released; orders released before are not counted
+    private int released;
+}
@@ -17,6 +17,10 @@ public class StockReservationRequest {
     private UUID orderId;
     private List<ReservationItem> items;
     
+    // Deduplication token for inventory, the order ID. Sent as the Idempotency-Key header on single
+    // calls and in the body of each entry of a batch call
+    private String idempotencyKey;
+    
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
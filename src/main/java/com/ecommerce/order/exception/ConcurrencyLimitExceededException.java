@@ -0,0 +1,14 @@
+package com.ecommerce.order.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Exception thrown when an inventory call is shed because the adaptive concurrency limit toward
+ * the inventory service has been reached. The call was never made, so it is always retryable.
+ */
+public class ConcurrencyLimitExceededException extends InventoryServiceException {
+    
+    public ConcurrencyLimitExceededException(String message) {
+        super(message, true, HttpStatus.TOO_MANY_REQUESTS);
+    }
+}
@@ -0,0 +1,11 @@
+package com.ecommerce.order.exception;
+
+/**
+ * Exception thrown when a pagination cursor cannot be decoded.
+ */
+public class InvalidCursorException extends RuntimeException {
+    
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
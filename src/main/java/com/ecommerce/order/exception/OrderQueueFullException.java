@@ -0,0 +1,11 @@
+package com.ecommerce.order.exception;
+
+/**
+ * Exception thrown when an order cannot be accepted because the reservation work queue is full.
+ */
+public class OrderQueueFullException extends RuntimeException {
+    
+    public OrderQueueFullException(String message) {
+        super(message);
+    }
+}
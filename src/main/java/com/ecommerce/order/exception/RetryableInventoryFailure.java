@@ -0,0 +1,19 @@
+package com.ecommerce.order.exception;
+
+import java.util.function.Predicate;
+
+/**
+ * Decides which failed inventory calls Resilience4j retries. The client translates every
+ * failure into an {@link InventoryServiceException} before the retry sees it, so the decision is
+ * made on its retryable flag rather than on the type of the underlying error. Calls shed by the
+ * concurrency limiter were never sent and are left to fail fast.
+ */
+public class RetryableInventoryFailure implements Predicate<Throwable> {
+    
+    @Override
+    public boolean test(Throwable ex) {
+        return ex instanceof InventoryServiceException inventoryServiceException
+                && inventoryServiceException.isRetryable()
+                && !(ex instanceof ConcurrencyLimitExceededException);
+    }
+}
@@ -2,18 +2,321 @@ package com.ecommerce.order.repository;
 
 import com.ecommerce.order.domain.Order;
 import com.ecommerce.order.domain.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, UUID> {
     
+    String ORDER_ROW_SELECT = "select new com.ecommerce.order.repository.OrderRow("
+            + "o.id, o.customerId, o.status, o.createdAt, o.updatedAt, o.totalAmount, o.failureReason, "
+            + "o.reservationAttempts, o.lastReservationAttempt, "
+            + "i.id, i.productId, i.productName, i.quantity, i.unitPrice) "
+            + "from Order o left join o.items i ";
+    
+    @EntityGraph(attributePaths = "items")
     List<Order> findByCustomerId(String customerId);
     
+    @EntityGraph(attributePaths = "items")
     List<Order> findByStatus(OrderStatus status);
     
+    @EntityGraph(attributePaths = "items")
     List<Order> findByCustomerIdAndStatus(String customerId, OrderStatus status);
-} 
\ No newline at end of file
+    
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findByIdempotencyKey(String idempotencyKey);
+    
+    /**
+     * Loads a read-only snapshot of an order together with its items in a single statement.
+     * Declared as a named query on {@link Order}, like the conditional updates below.
+     */
+    Optional<Order> findWithItemsById(@Param("id") UUID id);
+    
+    /**
+     * Loads read-only snapshots of the given orders together with their items in a single statement.
+     */
+    List<Order> findAllWithItemsByIdIn(@Param("ids") Collection<UUID> ids);
+    
+    /**
+     * Claims an order for a reservation attempt: moves it from the status it was read in to
+     * PENDING_RESERVING_STOCK, counts the attempt and pushes its next retry out. The claim only
+     * succeeds if the order is still in that status, has attempts left and no other attempt is
+     * in flight, i.e. its next retry is unset or due.
+     *
+     * @return 1 if this caller claimed the order, 0 otherwise
+     */
+    @Modifying
+    int claimReservationAttempt(@Param("id") UUID id,
+                                @Param("expectedStatus") OrderStatus expectedStatus,
+                                @Param("now") LocalDateTime now,
+                                @Param("nextRetryAt") LocalDateTime nextRetryAt,
+                                @Param("maxAttempts") int maxAttempts);
+    
+    /**
+     * Batch variant of {@link #claimReservationAttempt}: claims those of the orders that can be
+     * claimed with one UPDATE.
+     *
+     * @return The number of orders claimed
+     */
+    @Modifying
+    int claimReservationAttempts(@Param("ids") Collection<UUID> ids,
+                                 @Param("expectedStatus") OrderStatus expectedStatus,
+                                 @Param("now") LocalDateTime now,
+                                 @Param("nextRetryAt") LocalDateTime nextRetryAt,
+                                 @Param("maxAttempts") int maxAttempts);
+    
+    /**
+     * Finds which of the orders a {@link #claimReservationAttempts} call claimed, by the attempt
+     * time it wrote.
+     */
+    @Query("select o.id from Order o where o.id in :ids "
+            + "and o.status = com.ecommerce.order.domain.OrderStatus.PENDING_RESERVING_STOCK "
+            + "and o.lastReservationAttempt = :attemptedAt")
+    List<UUID> findIdsClaimedAt(@Param("ids") Collection<UUID> ids, @Param("attemptedAt") LocalDateTime attemptedAt);
+    
+    /**
+     * Moves an order to a new status if it is still in the expected one, without loading it or
+     * its items. A null failure reason keeps the current one.
+     *
+     * @return 1 if the order was moved, 0 if its status had already changed
+     */
+    @Modifying
+    int transitionStatus(@Param("id") UUID id,
+                         @Param("expectedStatus") OrderStatus expectedStatus,
+                         @Param("status") OrderStatus status,
+                         @Param("failureReason") String failureReason,
+                         @Param("reservationExpiresAt") LocalDateTime reservationExpiresAt,
+                         @Param("now") LocalDateTime now);
+    
+    /**
+     * Batch variant of {@link #transitionStatus}: moves those of the orders that are still in the
+     * expected status with one UPDATE.
+     *
+     * @return The number of orders moved
+     */
+    @Modifying
+    int transitionStatuses(@Param("ids") Collection<UUID> ids,
+                           @Param("expectedStatus") OrderStatus expectedStatus,
+                           @Param("status") OrderStatus status,
+                           @Param("failureReason") String failureReason,
+                           @Param("reservationExpiresAt") LocalDateTime reservationExpiresAt,
+                           @Param("now") LocalDateTime now);
+    
+    /**
+     * Finds which of the orders a {@link #transitionStatuses} call moved, by the status and
+     * update time it wrote.
+     */
+    @Query("select o.id from Order o where o.id in :ids and o.status = :status and o.updatedAt = :updatedAt")
+    List<UUID> findIdsTransitionedAt(@Param("ids") Collection<UUID> ids,
+                                     @Param("status") OrderStatus status,
+                                     @Param("updatedAt") LocalDateTime updatedAt);
+    
+    /**
+     * Marks an order that is waiting for a reservation retry INVALID, unless a reservation
+     * attempt for it is in flight or it has moved on.
+     *
+     * @return 1 if the order was marked INVALID, 0 otherwise
+     */
+    @Modifying
+    int abandonReservation(@Param("id") UUID id,
+                           @Param("failureReason") String failureReason,
+                           @Param("now") LocalDateTime now);
+    
+    /**
+     * Counts orders per status in one round trip. Statuses without orders are absent.
+     */
+    @Query("select o.status as status, count(o) as count from Order o group by o.status")
+    List<StatusCount> countGroupedByStatus();
+    
+    /**
+     * Loads the given orders with their items as flat rows in a single statement,
+     * ordered by (createdAt, id) with each order's rows adjacent.
+     */
+    @Query(ORDER_ROW_SELECT + "where o.id in :ids order by o.createdAt, o.id, i.id")
+    List<OrderRow> findRowsByIdIn(@Param("ids") Collection<UUID> ids);
+    
+    /**
+     * Finds the IDs of the first page of a customer's orders, ordered by (createdAt, id).
+     */
+    @Query("select o.id from Order o where o.customerId = :customerId order by o.createdAt, o.id")
+    List<UUID> findPageByCustomerId(@Param("customerId") String customerId, Pageable pageable);
+    
+    /**
+     * Finds the IDs of the page of a customer's orders after the given (createdAt, id) position.
+     */
+    @Query("select o.id from Order o where o.customerId = :customerId "
+            + "and (o.createdAt > :afterCreatedAt or (o.createdAt = :afterCreatedAt and o.id > :afterId)) "
+            + "order by o.createdAt, o.id")
+    List<UUID> findPageByCustomerIdAfter(@Param("customerId") String customerId,
+                                          @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                          @Param("afterId") UUID afterId,
+                                          Pageable pageable);
+    
+    /**
+     * Finds the IDs of the first page of orders in a status, ordered by (createdAt, id).
+     */
+    @Query("select o.id from Order o where o.status = :status order by o.createdAt, o.id")
+    List<UUID> findPageByStatus(@Param("status") OrderStatus status, Pageable pageable);
+    
+    /**
+     * Finds the IDs of the page of orders in a status after the given (createdAt, id) position.
+     */
+    @Query("select o.id from Order o where o.status = :status "
+            + "and (o.createdAt > :afterCreatedAt or (o.createdAt = :afterCreatedAt and o.id > :afterId)) "
+            + "order by o.createdAt, o.id")
+    List<UUID> findPageByStatusAfter(@Param("status") OrderStatus status,
+                                      @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                      @Param("afterId") UUID afterId,
+                                      Pageable pageable);
+    
+    /**
+     * Streams all orders in a status, joined with their items, as flat rows without
+     * materializing the result. Rows are fetched from the driver in chunks; the caller must
+     * consume the stream inside a transaction and close it.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_ROW_SELECT + "where o.status = :status order by o.createdAt, o.id, i.id")
+    Stream<OrderRow> streamRowsByStatus(@Param("status") OrderStatus status);
+    
+    /**
+     * Finds the first page of orders whose next retry is due, ordered by (nextRetryAt, id).
+     * Served by the (status, next_retry_at) index, so the cost is proportional to the page size.
+     */
+    @Query("select o.id as id, o.reservationAttempts as reservationAttempts, o.updatedAt as updatedAt, "
+            + "o.nextRetryAt as nextRetryAt from Order o "
+            + "where o.status = :status and o.nextRetryAt <= :now "
+            + "order by o.nextRetryAt, o.id")
+    List<RetryCandidate> findDueForRetry(@Param("status") OrderStatus status,
+                                         @Param("now") LocalDateTime now,
+                                         Pageable pageable);
+    
+    /**
+     * Finds the next page of due orders after the given (nextRetryAt, id) position.
+     */
+    @Query("select o.id as id, o.reservationAttempts as reservationAttempts, o.updatedAt as updatedAt, "
+            + "o.nextRetryAt as nextRetryAt from Order o "
+            + "where o.status = :status and o.nextRetryAt <= :now "
+            + "and (o.nextRetryAt > :afterNextRetryAt or (o.nextRetryAt = :afterNextRetryAt and o.id > :afterId)) "
+            + "order by o.nextRetryAt, o.id")
+    List<RetryCandidate> findDueForRetryAfter(@Param("status") OrderStatus status,
+                                              @Param("now") LocalDateTime now,
+                                               @Param("afterNextRetryAt") LocalDateTime afterNextRetryAt,
+                                              @Param("afterId") UUID afterId,
+                                              Pageable pageable);
+    
+    /**
+     * Finds the first page of due orders that no live lease holds, ordered by (nextRetryAt, id).
+     * The rows are not locked; {@link #lockLeasable} then locks those that are still free.
+     */
+    @Query("select o.id as id, o.reservationAttempts as reservationAttempts, o.updatedAt as updatedAt, "
+            + "o.nextRetryAt as nextRetryAt from Order o "
+            + "where o.status = :status and o.nextRetryAt <= :now "
+            + "and (o.leaseExpiresAt is null or o.leaseExpiresAt <= :now) "
+            + "order by o.nextRetryAt, o.id")
+    List<RetryCandidate> findLeasableDueForRetry(@Param("status") OrderStatus status,
+                                                 @Param("now") LocalDateTime now,
+                                                 Pageable pageable);
+    
+    /**
+     * Finds the next page of leasable due orders after the given (nextRetryAt, id) position.
+     */
+    @Query("select o.id as id, o.reservationAttempts as reservationAttempts, o.updatedAt as updatedAt, "
+            + "o.nextRetryAt as nextRetryAt from Order o "
+            + "where o.status = :status and o.nextRetryAt <= :now "
+            + "and (o.leaseExpiresAt is null or o.leaseExpiresAt <= :now) "
+            + "and (o.nextRetryAt > :afterNextRetryAt or (o.nextRetryAt = :afterNextRetryAt and o.id > :afterId)) "
+            + "order by o.nextRetryAt, o.id")
+    List<RetryCandidate> findLeasableDueForRetryAfter(@Param("status") OrderStatus status,
+                                                      @Param("now") LocalDateTime now,
+                                                      @Param("afterNextRetryAt") LocalDateTime afterNextRetryAt,
+                                                      @Param("afterId") UUID afterId,
+                                                      Pageable pageable);
+    
+    /**
+     * Locks those of the given orders that are still due and not under a live lease. Rows another
+     * transaction has locked are skipped rather than waited for, so instances leasing at the same
+     * time get disjoint batches. Must run inside a transaction. The candidates are ordered and
+     * limited by the queries above rather than here, because H2 applies FETCH FIRST before it
+     * skips locked rows whenever it sorts, which hands an instance leasing at the same time as
+     * another an empty batch. Native because Hibernate's H2 dialect does not render SKIP LOCKED;
+     * whole entities rather than ids because Hibernate reads an untyped native UUID column as bytes.
+     */
+    @Query(value = "select * from orders "
+            + "where id in :ids and status = 'PENDING_RESERVING_STOCK' and next_retry_at <= :now "
+            + "and (lease_expires_at is null or lease_expires_at <= :now) "
+            + "for update skip locked", nativeQuery = true)
+    List<Order> lockLeasable(@Param("ids") Collection<UUID> ids, @Param("now") LocalDateTime now);
+    
+    /**
+     * Leases orders to an instance until the given time. Leases are scheduler bookkeeping, not
+     * order state, so this and the other lease updates leave the version alone: leasing an order
+     * must not make a concurrent admin update of it fail with a conflict.
+     */
+    @Modifying
+    @Query("update Order o set o.leaseOwner = :owner, o.leaseExpiresAt = :leaseExpiresAt where o.id in :ids")
+    int lease(@Param("ids") Collection<UUID> ids,
+              @Param("owner") String owner,
+              @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+    
+    /**
+     * Extends an instance's lease on an order.
+     *
+     * @return 1 if the instance still held the lease, 0 if it was released or taken over
+     */
+    @Modifying
+    @Query("update Order o set o.leaseExpiresAt = :leaseExpiresAt where o.id = :id and o.leaseOwner = :owner")
+    int renewLease(@Param("id") UUID id,
+                   @Param("owner") String owner,
+                   @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+    
+    /**
+     * Releases the leases an instance holds on the given orders.
+     */
+    @Modifying
+    @Query("update Order o set o.leaseOwner = null, o.leaseExpiresAt = null "
+            + "where o.id in :ids and o.leaseOwner = :owner")
+    int releaseLeases(@Param("ids") Collection<UUID> ids, @Param("owner") String owner);
+    
+    /**
+     * Reads the retry state of the given orders, ordered by (nextRetryAt, id).
+     */
+    @Query("select o.id as id, o.reservationAttempts as reservationAttempts, o.updatedAt as updatedAt, "
+            + "o.nextRetryAt as nextRetryAt from Order o where o.id in :ids "
+            + "order by o.nextRetryAt, o.id")
+    List<RetryCandidate> findRetryCandidatesByIdIn(@Param("ids") Collection<UUID> ids);
+    
+    /**
+     * Finds orders whose reserved stock is due to be released, oldest deadline first. Served by
+     * the (status, reservation_expires_at, id) index; expired orders leave the status once handled,
+     * so each call starts at the front of the index.
+     */
+    @Query("select o.id from Order o where o.status = :status and o.reservationExpiresAt <= :now "
+            + "order by o.reservationExpiresAt, o.id")
+    List<UUID> findExpiredReservations(@Param("status") OrderStatus status,
+                                       @Param("now") LocalDateTime now,
+                                       Pageable pageable);
+    
+    /**
+     * Finds when the oldest order in a status was created, read from the front of the
+     * (status, created_at, id) index.
+     *
+     * @return The creation time, or null if no order is in the status
+     */
+    @Query("select min(o.createdAt) from Order o where o.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") OrderStatus status);
+}
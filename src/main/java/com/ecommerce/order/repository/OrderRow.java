@@ -0,0 +1,29 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.domain.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Flat projection of an order joined with one of its items. The item columns are null for an
+ * order without items. Rows of the same order are returned next to each other, so a list or
+ * stream of rows can be folded into order responses in a single pass.
+ */
+public record OrderRow(
+        UUID id,
+        String customerId,
+        OrderStatus status,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        BigDecimal totalAmount,
+        String failureReason,
+        int reservationAttempts,
+        LocalDateTime lastReservationAttempt,
+        UUID itemId,
+        String productId,
+        String productName,
+        Integer quantity,
+        BigDecimal unitPrice) {
+}
@@ -0,0 +1,20 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.domain.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+    
+    /**
+     * Oldest outbox rows first, one page at a time.
+     */
+    @Query("select e from OutboxEvent e order by e.createdAt, e.id")
+    List<OutboxEvent> findOldest(Pageable pageable);
+}
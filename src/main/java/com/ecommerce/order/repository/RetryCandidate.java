@@ -0,0 +1,19 @@
+package com.ecommerce.order.repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Projection of the columns the scheduler needs to decide on a retry, so due orders can be
+ * selected without loading the order aggregate or its items.
+ */
+public interface RetryCandidate {
+    
+    UUID getId();
+    
+    int getReservationAttempts();
+    
+    LocalDateTime getUpdatedAt();
+    
+    LocalDateTime getNextRetryAt();
+}
@@ -0,0 +1,13 @@
+package com.ecommerce.order.repository;
+
+import com.ecommerce.order.domain.OrderStatus;
+
+/**
+ * Projection of one row of the per-status order count aggregate.
+ */
+public interface StatusCount {
+    
+    OrderStatus getStatus();
+    
+    long getCount();
+}
@@ -1,22 +1,33 @@
 package com.ecommerce.order.scheduler;
 
-import com.ecommerce.order.domain.Order;
 import com.ecommerce.order.domain.OrderStatus;
 import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.RetryCandidate;
 import com.ecommerce.order.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Scheduler that automatically retries processing orders in PENDING_RESERVING_STOCK state.
  * This handles the case where transient errors prevented successful stock reservation.
+ * With leasing enabled, each instance retries only the batches of due orders it has leased,
+ * so the work is spread over the instances instead of each of them scanning every due order.
  */
 @Component
 @Slf4j
@@ -25,6 +36,9 @@ public class OrderProcessingScheduler {
 
     private final OrderRepository orderRepository;
     private final OrderService orderService;
+    private final OrderRetryEngine orderRetryEngine;
+    private final RetryLeaseManager retryLeaseManager;
+    private final MeterRegistry meterRegistry;
     
     @Value("${order-service.scheduler.max-retry-minutes:60}")
     private int maxRetryMinutes;
@@ -32,41 +46,151 @@ public class OrderProcessingScheduler {
     @Value("${order-service.scheduler.max-attempts:5}")
     private int maxAttempts;
     
-    @Value("${order-service.scheduler.retry-delay-seconds:30}")
-    private int retryDelaySeconds;
+    @Value("${order-service.scheduler.page-size:500}")
+    private int pageSize;
+    
+    @Value("${order-service.scheduler.lease.enabled:false}")
+    private boolean leaseEnabled;
+    
+    @Value("${order-service.scheduler.lease.batch-size:100}")
+    private int leaseBatchSize;
+    
+    // Creation time of the oldest pending order as of the last run, in epoch milliseconds; 0 if none
+    private final AtomicLong oldestPendingCreatedAt = new AtomicLong();
+    
+    @PostConstruct
+    public void registerBacklogAge() {
+        TimeGauge.builder("order.backlog.oldest.age", oldestPendingCreatedAt, TimeUnit.MILLISECONDS,
+                        oldest -> oldest.get() == 0 ? 0 : System.currentTimeMillis() - oldest.get())
+                .tag("status", OrderStatus.PENDING_RESERVING_STOCK.name())
+                .description("Age of the oldest order awaiting a stock reservation retry")
+                .register(meterRegistry);
+    }
     
     /**
      * Scheduled task that runs every minute to find and retry processing orders 
-     * that have been stuck in PENDING_RESERVING_STOCK state.
+     * that have been stuck in PENDING_RESERVING_STOCK state. Only orders whose next retry
+     * is due are read, one page at a time.
      */
     @Scheduled(fixedRateString = "${order-service.scheduler.retry-rate-ms:60000}")
     public void retryPendingOrders() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int total = 0;
+        try {
+            total = retryDueOrders();
+        } finally {
+            sample.stop(meterRegistry.timer("order.scheduler.tick", "task", "retry"));
+            meterRegistry.counter("order.scheduler.orders", "task", "retry").increment(total);
+        }
+    }
+    
+    /**
+     * Retries every due order, one page at a time.
+     *
+     * @return The number of due orders read
+     */
+    private int retryDueOrders() {
         log.info("Starting scheduled task to retry pending stock reservation orders");
         
-        // Find orders in PENDING_RESERVING_STOCK state
-        List<Order> pendingOrders = orderRepository.findByStatus(OrderStatus.PENDING_RESERVING_STOCK);
-        
-        if (pendingOrders.isEmpty()) {
-            log.debug("No orders found in PENDING_RESERVING_STOCK state");
-            return;
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime oldestPending = orderRepository.findOldestCreatedAt(OrderStatus.PENDING_RESERVING_STOCK);
+        oldestPendingCreatedAt.set(oldestPending == null ? 0
+                : oldestPending.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        if (leaseEnabled) {
+            return retryLeasedOrders(now);
         }
+        Pageable page = PageRequest.of(0, pageSize);
         
-        log.info("Found {} orders in PENDING_RESERVING_STOCK state to retry", pendingOrders.size());
+        // Find orders in PENDING_RESERVING_STOCK state whose retry delay has elapsed
+        List<RetryCandidate> candidates = orderRepository.findDueForRetry(
+                OrderStatus.PENDING_RESERVING_STOCK, now, page);
+        
+        if (candidates.isEmpty()) {
+            log.debug("No orders in PENDING_RESERVING_STOCK state are due for a retry");
+            return 0;
+        }
         
         // Get cutoff time for orders that have been in pending state too long
-        LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(maxRetryMinutes);
+        LocalDateTime cutoffTime = now.minusMinutes(maxRetryMinutes);
+        int total = 0;
+        
+        while (!candidates.isEmpty()) {
+            total += candidates.size();
+            log.info("Found {} orders in PENDING_RESERVING_STOCK state due for a retry", candidates.size());
+            
+            OrderRetryEngine.RetryRunSummary summary = orderRetryEngine.retry(selectRetryable(candidates, cutoffTime));
+            if (summary.deferred() > 0) {
+                // The engine stopped fanning out; leave the rest for the next run
+                break;
+            }
+            
+            if (candidates.size() < pageSize) {
+                break;
+            }
+            
+            RetryCandidate last = candidates.get(candidates.size() - 1);
+            candidates = orderRepository.findDueForRetryAfter(
+                    OrderStatus.PENDING_RESERVING_STOCK, now, last.getNextRetryAt(), last.getId(), page);
+        }
+        
+        log.info("Finished scheduled retry run over {} due orders", total);
+        return total;
+    }
+    
+    /**
+     * Retries due orders one leased batch at a time. Each batch is released once its retries have
+     * finished, also when the run fails; a lease this instance never gets to release expires.
+     *
+     * @return The number of due orders leased
+     */
+    private int retryLeasedOrders(LocalDateTime now) {
+        LocalDateTime cutoffTime = now.minusMinutes(maxRetryMinutes);
+        int total = 0;
+        RetryCandidate last = null;
+        
+        while (true) {
+            List<RetryCandidate> leased = retryLeaseManager.leaseDueOrders(last, leaseBatchSize);
+            if (leased.isEmpty()) {
+                break;
+            }
+            
+            total += leased.size();
+            log.info("Leased {} orders in PENDING_RESERVING_STOCK state due for a retry", leased.size());
+            
+            OrderRetryEngine.RetryRunSummary summary;
+            try {
+                summary = orderRetryEngine.retry(selectRetryable(leased, cutoffTime), retryLeaseManager::renew);
+            } finally {
+                retryLeaseManager.release(leased.stream().map(RetryCandidate::getId).toList());
+            }
+            
+            if (summary.deferred() > 0 || leased.size() < leaseBatchSize) {
+                break;
+            }
+            
+            // Continue after this batch, so orders that are still due are not leased twice in one run
+            last = leased.get(leased.size() - 1);
+        }
         
-        for (Order order : pendingOrders) {
+        log.info("Finished scheduled retry run over {} leased orders", total);
+        return total;
+    }
+    
+    /**
+     * Marks candidates that ran out of time or attempts as INVALID and returns the rest. Other
+     * instances may be working through the same candidates: each order is claimed by a
+     * conditional update before it is retried or given up on, so only one of them acts on it.
+     */
+    private List<RetryCandidate> selectRetryable(List<RetryCandidate> candidates, LocalDateTime cutoffTime) {
+        List<RetryCandidate> retryable = new ArrayList<>(candidates.size());
+        
+        for (RetryCandidate order : candidates) {
             // Skip orders that have exceeded the maximum retry time
             if (order.getUpdatedAt().isBefore(cutoffTime)) {
                 log.warn("Order {} has been in PENDING_RESERVING_STOCK state for more than {} minutes. Marking as INVALID", 
                         order.getId(), maxRetryMinutes);
                 
-                orderService.updateOrderStatus(
-                        order.getId(), 
-                        OrderStatus.INVALID, 
-                        "Exceeded maximum retry time for stock reservation"
-                );
+                orderService.abandonReservation(order.getId(), "Exceeded maximum retry time for stock reservation");
                 continue;
             }
             
@@ -75,33 +199,13 @@ public class OrderProcessingScheduler {
                 log.warn("Order {} has reached the maximum number of reservation attempts ({}). Marking as INVALID", 
                         order.getId(), maxAttempts);
                 
-                orderService.updateOrderStatus(
-                        order.getId(), 
-                        OrderStatus.INVALID, 
-                        "Maximum reservation attempts reached"
-                );
+                orderService.abandonReservation(order.getId(), "Maximum reservation attempts reached");
                 continue;
             }
             
-            // Skip orders that were recently attempted to avoid hammering the inventory service
-            if (order.getLastReservationAttempt() != null) {
-                long secondsSinceLastAttempt = ChronoUnit.SECONDS.between(
-                        order.getLastReservationAttempt(), LocalDateTime.now());
-                
-                if (secondsSinceLastAttempt < retryDelaySeconds) {
-                    log.debug("Skipping order {} as it was attempted {} seconds ago (retry delay is {} seconds)",
-                            order.getId(), secondsSinceLastAttempt, retryDelaySeconds);
-                    continue;
-                }
-            }
-            
-            try {
-                log.info("Retrying stock reservation for order: {} (attempt {}/{})", 
-                        order.getId(), order.getReservationAttempts() + 1, maxAttempts);
-                orderService.processOrder(order.getId());
-            } catch (Exception e) {
-                log.error("Failed to retry stock reservation for order: {}", order.getId(), e);
-            }
+            retryable.add(order);
         }
+        
+        return retryable;
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,270 @@
+package com.ecommerce.order.scheduler;
+
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.repository.RetryCandidate;
+import com.ecommerce.order.service.AdaptiveConcurrencyLimiter;
+import com.ecommerce.order.service.OrderService;
+import com.ecommerce.order.service.OrderTracer;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Retries stock reservation for a set of pending orders in parallel. Concurrency is bounded,
+ * calls toward inventory are rate limited by a token bucket, and fan-out stops as soon as the
+ * inventory circuit breaker opens; the remaining orders are left for the next run. Before each
+ * dispatch the engine also waits for headroom under the adaptive inventory concurrency limit, and
+ * each retry queues for a slot, so retries wait behind live traffic instead of being shed by the limiter.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderRetryEngine {
+
+    private final OrderService orderService;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final OrderTracer orderTracer;
+    
+    @Value("${order-service.scheduler.retry.parallelism:8}")
+    private int parallelism;
+    
+    @Value("${order-service.scheduler.retry.rate-per-second:50}")
+    private double ratePerSecond;
+    
+    @Value("${order-service.scheduler.retry.burst:50}")
+    private double burst;
+    
+    @Value("${order-service.scheduler.retry.limiter-wait-ms:5000}")
+    private long limiterWaitMs;
+    
+    @Value("${order-service.scheduler.retry.progress-log-interval:500}")
+    private int progressLogInterval;
+    
+    private TaskExecutor retryExecutor;
+    
+    private Semaphore inFlight;
+    
+    private TokenBucket tokenBucket;
+    
+    private CircuitBreaker circuitBreaker;
+    
+    private final AtomicInteger remaining = new AtomicInteger();
+    
+    /**
+     * Chooses how retries are dispatched. With virtual threads enabled each order is retried on
+     * its own virtual thread; otherwise a fixed pool of platform threads is used.
+     */
+    @PostConstruct
+    public void init() {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("order-retry-");
+            executor.setVirtualThreads(true);
+            retryExecutor = executor;
+        } else {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(parallelism);
+            executor.setMaxPoolSize(parallelism);
+            executor.setThreadNamePrefix("order-retry-");
+            executor.initialize();
+            retryExecutor = executor;
+        }
+        
+        inFlight = new Semaphore(parallelism);
+        tokenBucket = new TokenBucket(ratePerSecond, burst);
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker("inventoryService");
+        
+        meterRegistry.gauge("order.retry.in-flight", inFlight, permits -> parallelism - permits.availablePermits());
+        meterRegistry.gauge("order.retry.run.remaining", remaining);
+        
+        log.info("Order retry engine using {} threads: parallelism {}, rate {}/s, burst {}",
+                Threading.VIRTUAL.isActive(environment) ? "virtual" : "platform", parallelism, ratePerSecond, burst);
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (retryExecutor instanceof ThreadPoolTaskExecutor executor) {
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Retries the given orders and blocks until every dispatched retry has finished.
+     *
+     * @param orders The orders due for a retry
+     * @return Counts of what happened to the orders in this run
+     */
+    public RetryRunSummary retry(List<RetryCandidate> orders) {
+        return retry(orders, orderId -> true);
+    }
+    
+    /**
+     * Retries the given orders, each only if this instance still holds its lease when a worker
+     * picks it up, and blocks until every dispatched retry has finished.
+     *
+     * @param orders The orders due for a retry
+     * @param leaseHeld Renews the lease on an order; false if the lease was lost and the order must be skipped
+     * @return Counts of what happened to the orders in this run
+     */
+    public RetryRunSummary retry(List<RetryCandidate> orders, Predicate<UUID> leaseHeld) {
+        Timer.Sample runTimer = Timer.start(meterRegistry);
+        RetryRun run = new RetryRun(orders.size());
+        remaining.set(orders.size());
+        
+        try {
+            for (RetryCandidate order : orders) {
+                if (isCircuitOpen()) {
+                    run.deferred.set(run.total - run.dispatched.get());
+                    log.warn("Inventory circuit breaker is {}; deferring {} orders to the next run",
+                            circuitBreaker.getState(), run.deferred.get());
+                    break;
+                }
+                
+                if (!concurrencyLimiter.awaitHeadroom(Duration.ofMillis(limiterWaitMs))) {
+                    run.deferred.set(run.total - run.dispatched.get());
+                    log.warn("Inventory concurrency limit of {} still reached after {}ms; deferring {} orders to the next run",
+                            concurrencyLimiter.getLimit(), limiterWaitMs, run.deferred.get());
+                    break;
+                }
+                
+                tokenBucket.acquire();
+                inFlight.acquire();
+                run.dispatched.incrementAndGet();
+                
+                long dispatchedAt = System.nanoTime();
+                retryExecutor.execute(() -> {
+                    try {
+                        record(run, orderTracer.inSpan("order.retry", () -> retryOrder(order, dispatchedAt, leaseHeld)));
+                    } finally {
+                        remaining.decrementAndGet();
+                        inFlight.release();
+                    }
+                });
+            }
+            
+            // Wait for this run's retries so runs never overlap
+            inFlight.acquire(parallelism);
+            inFlight.release(parallelism);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Order retry run interrupted after dispatching {} of {} orders", run.dispatched.get(), run.total);
+        }
+        
+        remaining.set(0);
+        runTimer.stop(meterRegistry.timer("order.retry.run"));
+        meterRegistry.counter("order.retry.orders", "outcome", "deferred").increment(run.deferred.get());
+        
+        RetryRunSummary summary = run.summary();
+        log.info("Order retry run finished: {}", summary);
+        return summary;
+    }
+    
+    private boolean isCircuitOpen() {
+        CircuitBreaker.State state = circuitBreaker.getState();
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+    
+    private String retryOrder(RetryCandidate order, long dispatchedAt, Predicate<UUID> leaseHeld) {
+        // How long the order waited past its due time, and for a worker once dispatched
+        orderTracer.tag("order.id", order.getId().toString());
+        orderTracer.tag("scheduler.wait.ms", String.valueOf(
+                Duration.between(order.getNextRetryAt(), LocalDateTime.now()).toMillis()));
+        orderTracer.tag("queue.wait.ms", String.valueOf(
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dispatchedAt)));
+        try {
+            if (!leaseHeld.test(order.getId())) {
+                log.warn("Lost the lease on order {}; leaving it to the instance that holds it", order.getId());
+                return "lease-lost";
+            }
+            
+            log.info("Retrying stock reservation for order: {} (attempt {})", 
+                    order.getId(), order.getReservationAttempts() + 1);
+            OrderResponse response = concurrencyLimiter.queueing(Duration.ofMillis(limiterWaitMs),
+                    () -> orderService.processOrder(order.getId()));
+            return outcomeOf(response.getStatus());
+        } catch (Exception e) {
+            log.error("Failed to retry stock reservation for order: {}", order.getId(), e);
+            return "error";
+        }
+    }
+    
+    private static String outcomeOf(OrderStatus status) {
+        return switch (status) {
+            case PENDING_PAYMENT -> "reserved";
+            case INVALID -> "invalid";
+            default -> "pending";
+        };
+    }
+    
+    private void record(RetryRun run, String outcome) {
+        meterRegistry.counter("order.retry.orders", "outcome", outcome).increment();
+        
+        switch (outcome) {
+            case "reserved" -> run.reserved.incrementAndGet();
+            case "invalid" -> run.invalid.incrementAndGet();
+            case "pending" -> run.stillPending.incrementAndGet();
+            case "lease-lost" -> run.leaseLost.incrementAndGet();
+            default -> run.errors.incrementAndGet();
+        }
+        
+        int done = run.completed.incrementAndGet();
+        if (done % progressLogInterval == 0) {
+            log.info("Order retry progress: {}/{} completed ({} reserved so far)", done, run.total, run.reserved.get());
+        }
+    }
+    
+    /**
+     * Mutable counters for a single run.
+     */
+    private static class RetryRun {
+        private final int total;
+        private final AtomicInteger dispatched = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final AtomicInteger reserved = new AtomicInteger();
+        private final AtomicInteger invalid = new AtomicInteger();
+        private final AtomicInteger stillPending = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+        private final AtomicInteger deferred = new AtomicInteger();
+        private final AtomicInteger leaseLost = new AtomicInteger();
+        
+        RetryRun(int total) {
+            this.total = total;
+        }
+        
+        RetryRunSummary summary() {
+            return new RetryRunSummary(total, dispatched.get(), reserved.get(), invalid.get(),
+                    stillPending.get(), errors.get(), deferred.get(), leaseLost.get());
+        }
+    }
+    
+    /**
+     * Outcome counts of a finished run.
+     */
+    public record RetryRunSummary(int total, int dispatched, int reserved, int invalid,
+                                  int stillPending, int errors, int deferred, int leaseLost) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.ecommerce.order.scheduler;
+
+import com.ecommerce.order.domain.OutboxEvent;
+import com.ecommerce.order.repository.OutboxEventRepository;
+import com.ecommerce.order.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the transactional outbox in OUTBOX processing mode. Each batch of entries is handed to
+ * {@link OrderService#processOrders(List)}, which reserves stock outside any transaction, and
+ * the entries are deleted once the results are committed. An entry whose result was committed
+ * but which was not deleted is relayed again and skipped, since its order has moved on.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "order-service.processing.mode", havingValue = "OUTBOX")
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OrderService orderService;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${order-service.outbox.batch-size:100}")
+    private int batchSize;
+    
+    /**
+     * Relays outbox entries, oldest first, until the outbox is empty.
+     */
+    @Scheduled(fixedDelayString = "${order-service.outbox.poll-interval-ms:200}")
+    public void relay() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int total = 0;
+        try {
+            total = relayBatches();
+        } finally {
+            sample.stop(meterRegistry.timer("order.scheduler.tick", "task", "outbox"));
+            meterRegistry.counter("order.scheduler.orders", "task", "outbox").increment(total);
+        }
+    }
+    
+    /**
+     * @return The number of outbox entries relayed
+     */
+    private int relayBatches() {
+        int total = 0;
+        List<OutboxEvent> batch;
+        do {
+            batch = outboxEventRepository.findOldest(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return total;
+            }
+            
+            List<UUID> orderIds = batch.stream()
+                    .map(OutboxEvent::getOrderId)
+                    .distinct()
+                    .collect(Collectors.toList());
+            
+            try {
+                orderService.processOrders(orderIds);
+            } catch (RuntimeException ex) {
+                // Leave the entries in place; they are picked up again on the next poll
+                log.error("Failed to relay {} outbox entries", batch.size(), ex);
+                return total;
+            }
+            
+            outboxEventRepository.deleteAllInBatch(batch);
+            total += batch.size();
+            log.info("Relayed {} outbox entries", batch.size());
+        } while (batch.size() == batchSize);
+        return total;
+    }
+}
@@ -0,0 +1,90 @@
+package com.ecommerce.order.scheduler;
+
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.service.InventoryServiceClient;
+import com.ecommerce.order.service.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Releases stock held for orders that were not paid in time. Deadlines are tracked in the
+ * reservation_expires_at column; each sweep reads only due orders from the front of the
+ * (status, reservation_expires_at) index, releases them to inventory in batches and moves them
+ * to EXPIRED. Stock is released before the status changes, so a failure in between leads to the
+ * batch being released again on the next sweep rather than to stock being held forever.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ReservationExpirySweeper {
+
+    private final OrderRepository orderRepository;
+    private final InventoryServiceClient inventoryServiceClient;
+    private final OrderService orderService;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${order-service.reservation-expiry.batch-size:100}")
+    private int batchSize;
+    
+    /**
+     * Expires due reservations, oldest deadline first, until none are left.
+     */
+    @Scheduled(fixedDelayString = "${order-service.reservation-expiry.sweep-interval-ms:10000}")
+    public void sweep() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int total = 0;
+        try {
+            total = expireDueReservations();
+        } finally {
+            sample.stop(meterRegistry.timer("order.scheduler.tick", "task", "expiry"));
+            meterRegistry.counter("order.scheduler.orders", "task", "expiry").increment(total);
+        }
+    }
+    
+    /**
+     * @return The number of orders expired
+     */
+    private int expireDueReservations() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+        
+        List<UUID> orderIds;
+        do {
+            orderIds = orderRepository.findExpiredReservations(
+                    OrderStatus.PENDING_PAYMENT, now, PageRequest.of(0, batchSize));
+            if (orderIds.isEmpty()) {
+                break;
+            }
+            
+            try {
+                inventoryServiceClient.releaseStock(orderIds);
+            } catch (RuntimeException ex) {
+                // The orders stay PENDING_PAYMENT and are released on the next sweep
+                log.error("Failed to release stock for {} expired orders", orderIds.size(), ex);
+                break;
+            }
+            
+            int expired = orderService.expireOrders(orderIds);
+            total += expired;
+            if (expired == 0) {
+                break;
+            }
+        } while (orderIds.size() == batchSize);
+        
+        if (total > 0) {
+            log.info("Expired {} orders whose reservations were not paid in time", total);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,130 @@
+package com.ecommerce.order.scheduler;
+
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.RetryCandidate;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Leases orders due for a retry to this instance, so that several instances can run the retry
+ * scheduler against one database without all of them scanning and retrying the same orders.
+ * Due orders are read in (nextRetryAt, id) order and locked with FOR UPDATE SKIP LOCKED, which
+ * makes instances leasing at the same time pass over each other's rows instead of waiting for
+ * them; an instance reads on until its batch is full. The batch is stamped with this instance as
+ * owner and a lease deadline in the same short transaction. The row locks end with that
+ * transaction; the lease columns keep other instances away while the batch is processed.
+ * Each lease is renewed just before its order is retried, and a failed renewal means another
+ * instance took the order over. Leases of an instance that crashed simply expire.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RetryLeaseManager {
+    
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${order-service.scheduler.lease.owner:}")
+    private String configuredOwner;
+    
+    @Value("${order-service.scheduler.lease.duration-ms:60000}")
+    private long leaseDurationMs;
+    
+    // Identifies this instance in the lease_owner column
+    @Getter
+    private String owner;
+    
+    @PostConstruct
+    public void init() {
+        // pid@hostname unless configured: unique per running instance
+        owner = configuredOwner.isBlank() ? ManagementFactory.getRuntimeMXBean().getName() : configuredOwner;
+        log.info("Retry leases are held as {} for {}ms", owner, leaseDurationMs);
+    }
+    
+    /**
+     * Leases the next due orders that no live lease holds.
+     *
+     * @param after The last order of the previous batch in this run, or null for the first batch
+     * @param limit The maximum number of orders to lease
+     * @return The leased orders, ordered by (nextRetryAt, id)
+     */
+    public List<RetryCandidate> leaseDueOrders(RetryCandidate after, int limit) {
+        List<RetryCandidate> leased = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<UUID> ids = new ArrayList<>();
+            RetryCandidate position = after;
+            // Candidates another instance is leasing right now are skipped, so read on until the batch is full
+            while (ids.size() < limit) {
+                Pageable page = PageRequest.of(0, limit - ids.size());
+                List<RetryCandidate> candidates = position == null
+                        ? orderRepository.findLeasableDueForRetry(OrderStatus.PENDING_RESERVING_STOCK, now, page)
+                        : orderRepository.findLeasableDueForRetryAfter(OrderStatus.PENDING_RESERVING_STOCK, now,
+                                position.getNextRetryAt(), position.getId(), page);
+                if (candidates.isEmpty()) {
+                    break;
+                }
+                
+                List<UUID> candidateIds = candidates.stream().map(RetryCandidate::getId).toList();
+                orderRepository.lockLeasable(candidateIds, now).forEach(order -> ids.add(order.getId()));
+                position = candidates.get(candidates.size() - 1);
+            }
+            if (ids.isEmpty()) {
+                return List.<RetryCandidate>of();
+            }
+            
+            orderRepository.lease(ids, owner, now.plus(Duration.ofMillis(leaseDurationMs)));
+            return orderRepository.findRetryCandidatesByIdIn(ids);
+        });
+        
+        meterRegistry.counter("order.scheduler.lease", "outcome", "leased").increment(leased.size());
+        return leased;
+    }
+    
+    /**
+     * Extends this instance's lease on an order by the lease duration.
+     *
+     * @param orderId The leased order
+     * @return true if this instance still holds the lease, false if it was lost
+     */
+    public boolean renew(UUID orderId) {
+        Integer renewed = transactionTemplate.execute(status -> orderRepository.renewLease(
+                orderId, owner, LocalDateTime.now().plus(Duration.ofMillis(leaseDurationMs))));
+        if (renewed == 0) {
+            meterRegistry.counter("order.scheduler.lease", "outcome", "lost").increment();
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Releases this instance's leases on the given orders; leases taken over by other
+     * instances are left alone.
+     *
+     * @param orderIds The orders leased by this instance
+     */
+    public void release(Collection<UUID> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        Integer released = transactionTemplate.execute(status -> orderRepository.releaseLeases(orderIds, owner));
+        meterRegistry.counter("order.scheduler.lease", "outcome", "released").increment(released);
+    }
+}
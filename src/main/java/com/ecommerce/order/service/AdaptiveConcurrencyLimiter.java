@@ -0,0 +1,212 @@
+package com.ecommerce.order.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive limit on the number of concurrent calls to the inventory service (AIMD).
+ * While calls complete quickly and the limit is being used, it grows by one per call; when a call
+ * is slower than the latency threshold, times out or fails on the server side, it is cut by the
+ * backoff ratio. This keeps inventory near the concurrency it can sustain before latency builds
+ * up, rather than waiting for failures to open the circuit breaker.
+ * <p>
+ * The limiter is shared by every caller of {@link InventoryServiceClient}, including the
+ * request path and the retry scheduler. Calls over the limit fail fast unless the calling thread
+ * runs inside {@link #queueing(Duration, Supplier)}, in which case they wait for a slot.
+ * Waiting happens on a {@link Condition} rather than a monitor, so a virtual thread waiting for
+ * a slot unmounts from its carrier instead of pinning it.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * How a limited call ended, as far as the limit is concerned.
+     */
+    public enum Outcome {
+        // The call completed; its latency decides whether the limit grows or shrinks
+        SUCCESS,
+        // The call timed out or failed on the server side, a sign of overload
+        DROPPED,
+        // The call failed for a reason unrelated to load, e.g. a client error
+        IGNORED
+    }
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${external-service.inventory.concurrency.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${external-service.inventory.concurrency.initial-limit:20}")
+    private int initialLimit;
+    
+    @Value("${external-service.inventory.concurrency.min-limit:2}")
+    private int minLimit;
+    
+    @Value("${external-service.inventory.concurrency.max-limit:200}")
+    private int maxLimit;
+    
+    @Value("${external-service.inventory.concurrency.latency-threshold-ms:500}")
+    private long latencyThresholdMs;
+    
+    @Value("${external-service.inventory.concurrency.backoff-ratio:0.9}")
+    private double backoffRatio;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    
+    // Signalled whenever a slot is released or the limit changes
+    private final Condition headroom = lock.newCondition();
+    
+    private double limit;
+    
+    private int inFlight;
+    
+    private Counter rejectedCounter;
+    
+    private final ThreadLocal<Duration> maxQueueWait = new ThreadLocal<>();
+    
+    @PostConstruct
+    public void init() {
+        limit = initialLimit;
+        meterRegistry.gauge("inventory.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit);
+        meterRegistry.gauge("inventory.concurrency.in-flight", this, AdaptiveConcurrencyLimiter::getInFlight);
+        rejectedCounter = meterRegistry.counter("inventory.concurrency.rejected");
+        log.info("Inventory concurrency limiter {}: initial limit {}, range {}-{}, latency threshold {}ms",
+                enabled ? "enabled" : "disabled", initialLimit, minLimit, maxLimit, latencyThresholdMs);
+    }
+    
+    /**
+     * Take a slot for a call. Waits for one only on a thread running inside {@link #queueing(Duration, Supplier)}.
+     * @return true if the call may proceed; it must then be completed with {@link #release(long, Outcome)}
+     */
+    public boolean tryAcquire() {
+        Duration maxWait = maxQueueWait.get();
+        lock.lock();
+        try {
+            boolean acquired;
+            try {
+                acquired = maxWait == null ? !atLimit() : awaitHeadroom(maxWait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            }
+            
+            if (!acquired) {
+                rejectedCounter.increment();
+                return false;
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Run work whose inventory calls should wait for a slot instead of failing fast.
+     * Only calls made on the current thread queue; non-blocking calls still fail fast.
+     *
+     * @param maxWait The longest time each call waits for a slot before it is rejected
+     * @param work The work to run
+     * @return The result of the work
+     */
+    public <T> T queueing(Duration maxWait, Supplier<T> work) {
+        Duration previous = maxQueueWait.get();
+        maxQueueWait.set(maxWait);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                maxQueueWait.remove();
+            } else {
+                maxQueueWait.set(previous);
+            }
+        }
+    }
+    
+    /**
+     * Wait until a call could be made without exceeding the limit. No slot is taken; callers that
+     * can afford to queue use this before starting work that will call inventory.
+     *
+     * @param maxWait The longest time to wait
+     * @return true if there is headroom, false if the wait timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public boolean awaitHeadroom(Duration maxWait) throws InterruptedException {
+        long remainingNanos = maxWait.toNanos();
+        lock.lock();
+        try {
+            while (atLimit()) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = headroom.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Release the slot taken for a call and adjust the limit
+     * @param startNanos {@link System#nanoTime()} when the call started
+     * @param outcome How the call ended
+     */
+    public void release(long startNanos, Outcome outcome) {
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        lock.lock();
+        try {
+            inFlight--;
+            
+            if (outcome == Outcome.DROPPED || (outcome == Outcome.SUCCESS && latencyMs > latencyThresholdMs)) {
+                double previous = limit;
+                limit = Math.max(minLimit, limit * backoffRatio);
+                if ((int) previous != (int) limit) {
+                    log.debug("Inventory concurrency limit decreased to {} ({} call, {}ms)", (int) limit, outcome, latencyMs);
+                }
+            } else if (outcome == Outcome.SUCCESS && (inFlight + 1) * 2 >= limit) {
+                // Only grow while the current limit is actually being used
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            
+            headroom.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private boolean atLimit() {
+        return enabled && inFlight >= (int) limit;
+    }
+    
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.inventory.StockReservationResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Remembers reservations the inventory service has recently confirmed. If writing the result
+ * back to the order fails after inventory has reserved the stock, the next attempt for the order
+ * finds the confirmation here and applies it without calling inventory again.
+ * <p>
+ * Entries are bounded in number and expire after a TTL; beyond that, the order ID sent as the
+ * idempotency key lets inventory recognize a repeated reservation itself.
+ */
+@Component
+@RequiredArgsConstructor
+public class ConfirmedReservationCache {
+
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${order-service.reservation-cache.max-size:10000}")
+    private long maxSize;
+    
+    @Value("${order-service.reservation-cache.ttl-minutes:10}")
+    private long ttlMinutes;
+    
+    private Cache<UUID, StockReservationResponse> confirmedByOrderId;
+    
+    @PostConstruct
+    public void init() {
+        confirmedByOrderId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, confirmedByOrderId, "confirmed-reservations");
+    }
+    
+    /**
+     * Look up a confirmed reservation
+     * @param orderId The order ID
+     * @return The successful response from inventory, or null if none is cached
+     */
+    public StockReservationResponse find(UUID orderId) {
+        return confirmedByOrderId.getIfPresent(orderId);
+    }
+    
+    /**
+     * Remember a response from inventory if it confirms the reservation
+     * @param response The response from inventory
+     */
+    public void remember(StockReservationResponse response) {
+        if (response != null && response.isSuccess() && response.getOrderId() != null) {
+            confirmedByOrderId.put(response.getOrderId(), response);
+        }
+    }
+    
+    /**
+     * Forget the confirmation for an order, e.g. once its stock has been released
+     * @param orderId The order ID
+     */
+    public void forget(UUID orderId) {
+        confirmedByOrderId.invalidate(orderId);
+    }
+}
@@ -0,0 +1,77 @@
+package com.ecommerce.order.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Remembers which order was created for an idempotency key, so that client retries are answered
+ * without touching the database. Entries are bounded in number and expire after a TTL; the unique
+ * index on the orders table remains the source of truth once an entry is gone.
+ * <p>
+ * Submissions of the same key are serialized on one of a fixed set of lock stripes, so duplicates
+ * wait for each other while unrelated keys proceed in parallel.
+ */
+@Component
+public class IdempotencyStore {
+
+    @Value("${order-service.idempotency.cache-max-size:100000}")
+    private long cacheMaxSize;
+    
+    @Value("${order-service.idempotency.ttl-minutes:60}")
+    private long ttlMinutes;
+    
+    @Value("${order-service.idempotency.lock-stripes:64}")
+    private int lockStripes;
+    
+    private Cache<String, UUID> orderIdsByKey;
+    
+    private Lock[] locks;
+    
+    @PostConstruct
+    public void init() {
+        orderIdsByKey = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+        
+        locks = new Lock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+    
+    /**
+     * Look up the order created for an idempotency key
+     * @param idempotencyKey The client supplied key
+     * @return The order ID, or null if the key is not cached
+     */
+    public UUID find(String idempotencyKey) {
+        return orderIdsByKey.getIfPresent(idempotencyKey);
+    }
+    
+    /**
+     * Remember the order created for an idempotency key
+     * @param idempotencyKey The client supplied key
+     * @param orderId The order created for it
+     */
+    public void remember(String idempotencyKey, UUID orderId) {
+        orderIdsByKey.put(idempotencyKey, orderId);
+    }
+    
+    /**
+     * Get the lock stripe guarding an idempotency key
+     * @param idempotencyKey The client supplied key
+     * @return The lock shared by every key hashing to the same stripe
+     */
+    public Lock lockFor(String idempotencyKey) {
+        return locks[Math.floorMod(idempotencyKey.hashCode(), locks.length)];
+    }
+}
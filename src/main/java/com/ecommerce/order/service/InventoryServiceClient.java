@@ -1,12 +1,21 @@
 package com.ecommerce.order.service;
 
-import com.ecommerce.order.domain.Order;
-import com.ecommerce.order.domain.OrderItem;
+import com.ecommerce.order.dto.inventory.StockReleaseRequest;
+import com.ecommerce.order.dto.inventory.StockReleaseResponse;
 import com.ecommerce.order.dto.inventory.StockReservationRequest;
 import com.ecommerce.order.dto.inventory.StockReservationResponse;
+import com.ecommerce.order.exception.ConcurrencyLimitExceededException;
 import com.ecommerce.order.exception.InventoryServiceException;
+import com.ecommerce.order.service.AdaptiveConcurrencyLimiter.Outcome;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.RetryRegistry;
 import io.github.resilience4j.retry.annotation.Retry;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -18,108 +27,281 @@ import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class InventoryServiceClient {
 
-    private final WebClient.Builder webClientBuilder;
+    private static final String RESILIENCE_INSTANCE = "inventoryService";
     
-    @Value("${external-service.inventory.url}")
-    private String inventoryServiceUrl;
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private final WebClient inventoryWebClient;
+    private final ReservationBatcher reservationBatcher;
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final RetryRegistry retryRegistry;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final ConfirmedReservationCache confirmedReservations;
+    private final MeterRegistry meterRegistry;
     
     @Value("${external-service.inventory.timeout:3000}")
     private int timeout;
     
+    @Value("${external-service.inventory.batch.enabled:false}")
+    private boolean batchingEnabled;
+    
+    /**
+     * Counts every retry of an inventory call, tagged with the attempt about to be made, and
+     * every call that failed after its last attempt.
+     */
+    @PostConstruct
+    public void registerRetryMetrics() {
+        retryRegistry.retry(RESILIENCE_INSTANCE).getEventPublisher()
+                .onRetry(event -> meterRegistry.counter("inventory.reserve.retries", 
+                        "attempt", String.valueOf(event.getNumberOfRetryAttempts() + 1)).increment())
+                .onError(event -> meterRegistry.counter("inventory.reserve.retries.exhausted").increment());
+    }
+    
     /**
      * Calls the Inventory service to reserve stock for the order.
-     * Uses retry and circuit breaker patterns for resilience.
+     * Uses retry and circuit breaker patterns for resilience. When batching is enabled the
+     * request is coalesced with concurrent reservations into a single multi-order call.
+     * The request is built beforehand so that no transaction needs to stay open during the call.
+     * The call is rejected without being sent when the adaptive concurrency limit is reached.
+     * Every attempt carries the order ID as its idempotency key, so a retry after a timeout does not
+     * reserve the stock twice; confirmed reservations are remembered in {@link ConfirmedReservationCache}.
      *
-     * @param order The order for which to reserve stock
-     * @return The response from the inventory service
-     * @throws InventoryServiceException If there's an error communicating with the inventory service
+     * @param request The reservation request for the order
+     * @return The response from the inventory service; a failed response means inventory rejected the reservation
+     * @throws ConcurrencyLimitExceededException If the concurrency limit toward inventory is reached
+     * @throws InventoryServiceException If there's an error communicating with the inventory service, including
+     *         when retries are exhausted or the circuit is open
+     */
+    // The fallback is on the outer retry only; on the circuit breaker it would handle every failed
+    // attempt before the retry could see it
+    @Retry(name = RESILIENCE_INSTANCE, fallbackMethod = "reserveStockFallback")
+    @CircuitBreaker(name = RESILIENCE_INSTANCE)
+    public StockReservationResponse reserveStock(StockReservationRequest request) {
+        acquireSlot(request.getOrderId());
+        long startNanos = System.nanoTime();
+        Outcome outcome = Outcome.SUCCESS;
+        try {
+            StockReservationResponse response = batchingEnabled
+                    ? reserveStockBatched(request)
+                    : sendReservation(request).block();
+            confirmedReservations.remember(response);
+            return response;
+        } catch (Exception ex) {
+            outcome = outcomeOf(ex);
+            throw translateException(request.getOrderId(), ex);
+        } finally {
+            completeCall("inventory.reserve", startNanos, outcome);
+        }
+    }
+    
+    /**
+     * Non-blocking variant of {@link #reserveStock(StockReservationRequest)}. No thread is held while the call is
+     * in flight; the same Resilience4j retry and circuit breaker instances are applied as Reactor
+     * operators instead of through the blocking annotations. Each attempt takes a slot from the
+     * adaptive concurrency limiter for as long as it is in flight.
+     *
+     * @param request The reservation request, built while the order was still attached
+     * @return A Mono emitting the inventory response; fails with {@link InventoryServiceException} once
+     *         retries are exhausted or while the circuit is open, and with
+     *         {@link ConcurrencyLimitExceededException} if the call was shed by the limiter
      */
-    @Retry(name = "inventoryService", fallbackMethod = "reserveStockFallback")
-    @CircuitBreaker(name = "inventoryService", fallbackMethod = "reserveStockFallback")
-    public StockReservationResponse reserveStock(Order order) {
-        StockReservationRequest request = createReservationRequest(order);
+    public Mono<StockReservationResponse> reserveStockReactive(StockReservationRequest request) {
+        UUID orderId = request.getOrderId();
         
+        return Mono.defer(() -> sendLimited(request))
+                .onErrorMap(ex -> translateException(orderId, ex))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(RESILIENCE_INSTANCE)))
+                .transformDeferred(RetryOperator.of(retryRegistry.retry(RESILIENCE_INSTANCE)))
+                .onErrorMap(ex -> !(ex instanceof ConcurrencyLimitExceededException),
+                        ex -> unavailable(orderId, ex))
+                // Carry the caller's trace context into the call, however the Mono is subscribed
+                .contextCapture();
+    }
+    
+    /**
+     * Releases the stock reserved for a set of orders in one call. Inventory is expected to treat
+     * releasing an already released order as a no-op, so a batch may safely be sent again.
+     *
+     * @param orderIds The orders whose reservations should be released
+     * @return The response from the inventory service
+     * @throws InventoryServiceException If the release failed or was shed by the concurrency limiter
+     */
+    @CircuitBreaker(name = RESILIENCE_INSTANCE)
+    public StockReleaseResponse releaseStock(List<UUID> orderIds) {
+        acquireSlot(orderIds.get(0));
+        long startNanos = System.nanoTime();
+        Outcome outcome = Outcome.SUCCESS;
         try {
-            return webClientBuilder.build()
-                    .post()
-                    .uri(inventoryServiceUrl + "/reserve")
-                    .bodyValue(request)
+            return inventoryWebClient.post()
+                    .uri("/release")
+                    .bodyValue(StockReleaseRequest.builder().orderIds(orderIds).build())
                     .retrieve()
-                    .bodyToMono(StockReservationResponse.class)
+                    .bodyToMono(StockReleaseResponse.class)
                     .timeout(Duration.ofMillis(timeout))
                     .block();
-        } catch (WebClientResponseException ex) {
+        } catch (Exception ex) {
+            outcome = outcomeOf(ex);
+            throw translateException(orderIds.get(0), ex);
+        } finally {
+            completeCall("inventory.release", startNanos, outcome);
+        }
+    }
+    
+    private Mono<StockReservationResponse> sendLimited(StockReservationRequest request) {
+        acquireSlot(request.getOrderId());
+        long startNanos = System.nanoTime();
+        AtomicBoolean released = new AtomicBoolean();
+        Consumer<Outcome> release = outcome -> {
+            if (released.compareAndSet(false, true)) {
+                completeCall("inventory.reserve", startNanos, outcome);
+            }
+        };
+        
+        return sendReservation(request)
+                .doOnNext(confirmedReservations::remember)
+                .doOnSuccess(response -> release.accept(Outcome.SUCCESS))
+                .doOnError(ex -> release.accept(outcomeOf(ex)))
+                .doOnCancel(() -> release.accept(Outcome.IGNORED));
+    }
+    
+    /**
+     * Releases the call's concurrency slot and records how long the attempt took.
+     */
+    private void completeCall(String timerName, long startNanos, Outcome outcome) {
+        concurrencyLimiter.release(startNanos, outcome);
+        meterRegistry.timer(timerName, "outcome", outcome.name().toLowerCase())
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+    
+    private void acquireSlot(UUID orderId) {
+        if (!concurrencyLimiter.tryAcquire()) {
+            throw new ConcurrencyLimitExceededException("Inventory concurrency limit of " 
+                    + concurrencyLimiter.getLimit() + " reached, call for order " + orderId + " was not sent");
+        }
+    }
+    
+    /**
+     * Classifies a failed call for the concurrency limiter: client errors say nothing about
+     * inventory's load, everything else (timeouts, 5xx, connection errors) is treated as a drop.
+     */
+    private Outcome outcomeOf(Throwable ex) {
+        if (ex instanceof WebClientResponseException responseException 
+                && responseException.getStatusCode().is4xxClientError()) {
+            return Outcome.IGNORED;
+        }
+        return Outcome.DROPPED;
+    }
+    
+    private Mono<StockReservationResponse> sendReservation(StockReservationRequest request) {
+        return inventoryWebClient.post()
+                .uri("/reserve")
+                .header(IDEMPOTENCY_KEY_HEADER, request.getIdempotencyKey())
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(StockReservationResponse.class)
+                .timeout(Duration.ofMillis(timeout));
+    }
+    
+    /**
+     * Queues the request with the batcher and waits for this order's result.
+     *
+     * @param request The reservation request for the order
+     * @return The order's own reservation result from the batch response
+     * @throws Exception The underlying transport error, so it is classified like a direct call
+     */
+    private StockReservationResponse reserveStockBatched(StockReservationRequest request) throws Exception {
+        try {
+            return reservationBatcher.submit(request).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException ex) {
+            throw ex.getCause() instanceof Exception cause ? cause : ex;
+        }
+    }
+    
+    /**
+     * Classifies a failed inventory call as retryable or not.
+     *
+     * @param orderId The order the call was made for
+     * @param ex The error raised by the call
+     * @return The exception to surface to the caller
+     */
+    private InventoryServiceException translateException(UUID orderId, Throwable ex) {
+        if (ex instanceof InventoryServiceException inventoryServiceException) {
+            return inventoryServiceException;
+        }
+        
+        if (ex instanceof WebClientResponseException responseException) {
             log.error("Error reserving stock for order {}: Status {}, Response: {}", 
-                    order.getId(), ex.getStatusCode(), ex.getResponseBodyAsString(), ex);
+                    orderId, responseException.getStatusCode(), responseException.getResponseBodyAsString(), ex);
             
             // Differentiate between client and server errors
-            if (ex.getStatusCode().is4xxClientError()) {
+            if (responseException.getStatusCode().is4xxClientError()) {
                 // Client errors (like 400 Bad Request) are not retryable
-                throw new InventoryServiceException("Client error when calling inventory service: " + ex.getMessage(), 
-                        false, ex.getStatusCode());
-            } else {
-                // Server errors (like 500 Internal Server Error) are retryable
-                throw new InventoryServiceException("Server error when calling inventory service: " + ex.getMessage(), 
-                        true, ex.getStatusCode());
+                return new InventoryServiceException("Client error when calling inventory service: " + ex.getMessage(), 
+                        false, responseException.getStatusCode());
             }
-        } catch (Exception ex) {
-            log.error("Unexpected error reserving stock for order {}", order.getId(), ex);
-            throw new InventoryServiceException("Failed to communicate with inventory service: " + ex.getMessage(), 
-                    true, HttpStatus.INTERNAL_SERVER_ERROR);
+            // Server errors (like 500 Internal Server Error) are retryable
+            return new InventoryServiceException("Server error when calling inventory service: " + ex.getMessage(), 
+                    true, responseException.getStatusCode());
         }
+        
+        log.error("Unexpected error reserving stock for order {}", orderId, ex);
+        return new InventoryServiceException("Failed to communicate with inventory service: " + ex.getMessage(), 
+                true, HttpStatus.INTERNAL_SERVER_ERROR);
     }
     
     /**
      * Fallback method that is called when all retries are exhausted or the circuit is open.
+     * Neither says anything about the stock, so the failure is rethrown rather than turned into a
+     * failed reservation, which would mark the order INVALID; a retryable failure leaves the order
+     * pending for the retry scheduler.
      *
-     * @param order The order for which stock reservation failed
+     * @param request The reservation request that failed
      * @param ex The exception that triggered the fallback
-     * @return A failure response with appropriate messaging
+     * @return Never returns normally
      */
-    private StockReservationResponse reserveStockFallback(Order order, Exception ex) {
-        log.error("All retries exhausted for reserving stock for order {}", order.getId(), ex);
-        
-        return StockReservationResponse.builder()
-                .orderId(order.getId())
-                .success(false)
-                .message("Failed to reserve stock after multiple attempts: " + ex.getMessage())
-                .build();
+    private StockReservationResponse reserveStockFallback(StockReservationRequest request, Exception ex) {
+        throw unavailable(request.getOrderId(), ex);
     }
     
     /**
-     * Creates a reservation request from an order.
+     * Calls shed by the concurrency limiter were never sent, so they are surfaced to the caller
+     * as retryable failures instead of being turned into a failed reservation.
      *
-     * @param order The order to create a reservation request for
-     * @return The stock reservation request
+     * @param request The reservation request that was not sent
+     * @param ex The rejection from the limiter
+     * @return Never returns normally
      */
-    private StockReservationRequest createReservationRequest(Order order) {
-        List<StockReservationRequest.ReservationItem> items = order.getItems().stream()
-                .map(this::mapToReservationItem)
-                .collect(Collectors.toList());
-        
-        return StockReservationRequest.builder()
-                .orderId(order.getId())
-                .items(items)
-                .build();
+    private StockReservationResponse reserveStockFallback(StockReservationRequest request, 
+            ConcurrencyLimitExceededException ex) {
+        throw ex;
     }
     
     /**
-     * Maps an order item to a reservation item.
+     * Surfaces a reservation that could not be made as an {@link InventoryServiceException}.
      *
-     * @param orderItem The order item to map
-     * @return The reservation item
+     * @param orderId The order the reservation was for
+     * @param ex The last attempt's failure, or the rejection by the open circuit breaker
+     * @return The exception to throw; retryable unless inventory rejected the request as invalid
      */
-    private StockReservationRequest.ReservationItem mapToReservationItem(OrderItem orderItem) {
-        return StockReservationRequest.ReservationItem.builder()
-                .productId(orderItem.getProductId())
-                .quantity(orderItem.getQuantity())
-                .build();
+    private InventoryServiceException unavailable(UUID orderId, Throwable ex) {
+        if (ex instanceof CallNotPermittedException) {
+            log.warn("Inventory circuit breaker is open; stock for order {} was not reserved", orderId);
+            return new InventoryServiceException("Inventory service unavailable, circuit breaker is open",
+                    true, HttpStatus.SERVICE_UNAVAILABLE, ex);
+        }
+        
+        log.error("All retries exhausted for reserving stock for order {}", orderId, ex);
+        return translateException(orderId, ex);
     }
-} 
\ No newline at end of file
+}
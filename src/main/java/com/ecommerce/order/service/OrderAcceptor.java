@@ -0,0 +1,111 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.exception.OrderQueueFullException;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Accepts orders in ACCEPT processing mode: the order is persisted on the request thread and its
+ * stock reservation is queued for a pool of workers, so the request returns before the inventory
+ * call. The queue is bounded; when it is full the order is rejected before anything is written.
+ * The queue itself is not durable: orders are persisted as due for a reservation, so one lost
+ * with the queue, or whose reservation fails before it is claimed, is reserved by the retry scheduler.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderAcceptor {
+
+    private final OrderService orderService;
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    
+    @Value("${order-service.accept.workers:16}")
+    private int workers;
+    
+    @Value("${order-service.accept.queue-capacity:1000}")
+    private int queueCapacity;
+    
+    private ThreadPoolTaskExecutor reservationExecutor;
+    
+    // One permit per order queued or being reserved
+    private Semaphore slots;
+    
+    /**
+     * Sets up the workers behind a bounded queue, so handing an order over never blocks the
+     * request thread. With virtual threads enabled the workers are virtual threads.
+     */
+    @PostConstruct
+    public void init() {
+        reservationExecutor = new ThreadPoolTaskExecutor();
+        reservationExecutor.setCorePoolSize(workers);
+        reservationExecutor.setMaxPoolSize(workers);
+        reservationExecutor.setQueueCapacity(queueCapacity);
+        reservationExecutor.setThreadNamePrefix("order-accept-");
+        if (Threading.VIRTUAL.isActive(environment)) {
+            reservationExecutor.setThreadFactory(new VirtualThreadTaskExecutor("order-accept-").getVirtualThreadFactory());
+        }
+        reservationExecutor.initialize();
+        
+        int capacity = workers + queueCapacity;
+        slots = new Semaphore(capacity);
+        meterRegistry.gauge("order.accept.queued", slots, permits -> capacity - permits.availablePermits());
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        reservationExecutor.shutdown();
+    }
+    
+    /**
+     * Persist an order and queue its stock reservation
+     * @param request The order creation request
+     * @return The created order, PENDING_RESERVING_STOCK, or the existing order for a repeated idempotency key
+     * @throws OrderQueueFullException If the reservation queue is full; no order is created
+     */
+    public OrderResponse accept(CreateOrderRequest request) {
+        if (!slots.tryAcquire()) {
+            meterRegistry.counter("order.accept.rejected").increment();
+            throw new OrderQueueFullException("Too many orders awaiting stock reservation, please retry later");
+        }
+        
+        boolean queued = false;
+        try {
+            OrderResponse order = orderService.enqueueOrder(request);
+            if (!order.isReplayed()) {
+                reservationExecutor.execute(() -> reserve(order.getId()));
+                queued = true;
+            }
+            return order;
+        } finally {
+            if (!queued) {
+                slots.release();
+            }
+        }
+    }
+    
+    private void reserve(UUID orderId) {
+        try {
+            orderService.processOrder(orderId);
+        } catch (RuntimeException ex) {
+            // The order stays PENDING_RESERVING_STOCK and is picked up by the retry scheduler once due
+            log.error("Failed to process accepted order {}", orderId, ex);
+        } finally {
+            slots.release();
+        }
+    }
+}
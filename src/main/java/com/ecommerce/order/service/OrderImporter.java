@@ -0,0 +1,336 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderImportResult;
+import com.ecommerce.order.dto.OrderImportResult.Outcome;
+import com.ecommerce.order.dto.OrderResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Imports orders from a stream holding either a JSON array or newline-delimited JSON objects.
+ * The body is read one order at a time: an array with Jackson's streaming parser, NDJSON one line
+ * at a time, so a malformed line only rejects itself. Valid orders are saved in chunks of a fixed
+ * size, and the results of each chunk are handed back before the next one is read, so memory use
+ * does not depend on the size of the body. Saved orders are due for a reservation, which is made
+ * in the background through the batched {@link OrderService#processOrders(List)} path, or by the
+ * retry scheduler if that never runs.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderImporter {
+
+    // Leading whitespace scanned for the start of a JSON array
+    private static final int PEEK_LIMIT = 8192;
+    
+    private final OrderService orderService;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    
+    @Value("${order-service.import.chunk-size:200}")
+    private int chunkSize;
+    
+    @Value("${order-service.import.reservation-workers:2}")
+    private int reservationWorkers;
+    
+    @Value("${order-service.processing.mode:SYNC}")
+    private ProcessingMode processingMode;
+    
+    private ThreadPoolTaskExecutor reservationExecutor;
+    
+    @PostConstruct
+    public void init() {
+        reservationExecutor = new ThreadPoolTaskExecutor();
+        reservationExecutor.setCorePoolSize(reservationWorkers);
+        reservationExecutor.setMaxPoolSize(reservationWorkers);
+        reservationExecutor.setQueueCapacity(reservationWorkers);
+        // When reservations fall behind, the importing thread reserves the chunk itself, which slows reading
+        reservationExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        reservationExecutor.setThreadNamePrefix("order-import-");
+        reservationExecutor.initialize();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        reservationExecutor.shutdown();
+    }
+    
+    /**
+     * Import the orders in a request body
+     * @param body A JSON array of create order requests, or one create order request per line
+     * @param resultSink Receives the results of each chunk, in body order, once the chunk is saved
+     * @throws IOException If the body cannot be read
+     */
+    public void importOrders(InputStream body, Consumer<List<OrderImportResult>> resultSink) throws IOException {
+        Chunk chunk = new Chunk(resultSink);
+        BufferedInputStream in = new BufferedInputStream(body);
+        int index = startsWithArray(in) ? importArray(in, chunk) : importLines(in, chunk);
+        
+        chunk.flush();
+        log.info("Imported {} orders: {} created, {} replayed, {} rejected, {} failed", index,
+                chunk.counts.get(Outcome.CREATED), chunk.counts.get(Outcome.REPLAYED),
+                chunk.counts.get(Outcome.REJECTED), chunk.counts.get(Outcome.FAILED));
+    }
+    
+    /**
+     * Reads the orders of a JSON array. A syntax error ends the import, as the parser cannot
+     * find the start of the next order after it.
+     *
+     * @return The number of orders read
+     */
+    private int importArray(InputStream in, Chunk chunk) throws IOException {
+        int index = 0;
+        
+        // The root-level array is unwrapped, so the orders are read as a sequence of objects
+        try (MappingIterator<JsonNode> nodes = objectMapper.readerFor(JsonNode.class).readValues(in)) {
+            while (nodes.hasNextValue()) {
+                JsonNode node = nodes.nextValue();
+                chunk.add(index++, node);
+                if (chunk.isFull()) {
+                    chunk.flush();
+                }
+            }
+        } catch (JsonProcessingException ex) {
+            // The rest of the body cannot be parsed; keep what was read so far
+            chunk.reject(index, "Malformed JSON, import stopped: " + ex.getOriginalMessage(), null);
+        }
+        return index;
+    }
+    
+    /**
+     * Reads NDJSON, parsing each non-blank line on its own so that a malformed line is rejected
+     * with its line number and the lines after it are still imported.
+     *
+     * @return The number of orders read
+     */
+    private int importLines(InputStream in, Chunk chunk) throws IOException {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        int index = 0;
+        int lineNumber = 0;
+        
+        String line;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            
+            try {
+                chunk.add(index, objectMapper.readTree(line));
+            } catch (JsonProcessingException ex) {
+                chunk.reject(index, "Malformed JSON on line " + lineNumber + ": " + ex.getOriginalMessage(), null);
+            }
+            index++;
+            if (chunk.isFull()) {
+                chunk.flush();
+            }
+        }
+        return index;
+    }
+    
+    /**
+     * Tells the formats apart by the first non-whitespace byte, without consuming it.
+     */
+    private static boolean startsWithArray(BufferedInputStream in) throws IOException {
+        in.mark(PEEK_LIMIT);
+        try {
+            for (int i = 0; i < PEEK_LIMIT; i++) {
+                int next = in.read();
+                if (next == -1 || !Character.isWhitespace(next)) {
+                    return next == '[';
+                }
+            }
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+    
+    /**
+     * Orders read since the last flush, with the results already known for them.
+     */
+    private class Chunk {
+        
+        private final Consumer<List<OrderImportResult>> resultSink;
+        
+        private final Map<Integer, CreateOrderRequest> validOrders = new LinkedHashMap<>();
+        
+        private final List<OrderImportResult> results = new ArrayList<>();
+        
+        private final Map<Outcome, Integer> counts = new LinkedHashMap<>();
+        
+        Chunk(Consumer<List<OrderImportResult>> resultSink) {
+            this.resultSink = resultSink;
+            for (Outcome outcome : Outcome.values()) {
+                counts.put(outcome, 0);
+            }
+        }
+        
+        void add(int index, JsonNode node) {
+            CreateOrderRequest request;
+            try {
+                request = objectMapper.treeToValue(node, CreateOrderRequest.class);
+            } catch (JsonProcessingException ex) {
+                reject(index, "Invalid order: " + ex.getOriginalMessage(), null);
+                return;
+            }
+            
+            Set<ConstraintViolation<CreateOrderRequest>> violations = validator.validate(request);
+            if (!violations.isEmpty()) {
+                Map<String, String> errors = violations.stream()
+                        .collect(Collectors.toMap(violation -> violation.getPropertyPath().toString(),
+                                ConstraintViolation::getMessage, (first, second) -> first));
+                reject(index, "Validation failed", errors);
+                return;
+            }
+            
+            validOrders.put(index, request);
+        }
+        
+        void reject(int index, String message, Map<String, String> errors) {
+            record(OrderImportResult.builder()
+                    .index(index)
+                    .outcome(Outcome.REJECTED)
+                    .message(message)
+                    .errors(errors)
+                    .build());
+        }
+        
+        boolean isFull() {
+            return validOrders.size() >= chunkSize;
+        }
+        
+        /**
+         * Saves the valid orders, queues their reservation and hands all results to the sink.
+         */
+        void flush() {
+            if (!validOrders.isEmpty()) {
+                List<UUID> createdIds = save();
+                // In OUTBOX mode the outbox relay reserves them
+                if (!createdIds.isEmpty() && processingMode != ProcessingMode.OUTBOX) {
+                    reservationExecutor.execute(() -> reserve(createdIds));
+                }
+            }
+            
+            if (!results.isEmpty()) {
+                results.sort(Comparator.comparingInt(OrderImportResult::getIndex));
+                resultSink.accept(List.copyOf(results));
+            }
+            validOrders.clear();
+            results.clear();
+        }
+        
+        /**
+         * Saves the valid orders. Orders without an idempotency key are inserted together in one
+         * transaction, so if that fails none of them was saved and each is saved again on its own,
+         * where a single bad order only fails itself. Keyed orders are saved one by one, each in its
+         * own transaction, so a failing keyed order never causes another order to be saved twice.
+         *
+         * @return The IDs of the orders created
+         */
+        private List<UUID> save() {
+            List<Integer> unkeyed = new ArrayList<>();
+            List<Integer> keyed = new ArrayList<>();
+            validOrders.forEach((index, request) ->
+                    (request.getIdempotencyKey() == null ? unkeyed : keyed).add(index));
+            
+            Map<Integer, OrderResponse> saved = new HashMap<>();
+            if (!unkeyed.isEmpty()) {
+                try {
+                    List<OrderResponse> orders = createOrders(unkeyed.stream().map(validOrders::get).toList());
+                    for (int i = 0; i < unkeyed.size(); i++) {
+                        saved.put(unkeyed.get(i), orders.get(i));
+                    }
+                } catch (RuntimeException ex) {
+                    log.warn("Saving a chunk of {} imported orders failed, saving them individually", unkeyed.size(), ex);
+                    unkeyed.forEach(index -> saved.put(index, saveOne(index, validOrders.get(index))));
+                }
+            }
+            keyed.forEach(index -> saved.put(index, saveOne(index, validOrders.get(index))));
+            
+            List<UUID> createdIds = new ArrayList<>();
+            for (Integer index : validOrders.keySet()) {
+                OrderResponse order = saved.get(index);
+                if (order == null) {
+                    continue;
+                }
+                
+                Outcome outcome = order.isReplayed() ? Outcome.REPLAYED : Outcome.CREATED;
+                if (outcome == Outcome.CREATED) {
+                    createdIds.add(order.getId());
+                }
+                record(OrderImportResult.builder()
+                        .index(index)
+                        .outcome(outcome)
+                        .orderId(order.getId())
+                        .status(order.getStatus())
+                        .build());
+            }
+            return createdIds;
+        }
+        
+        private OrderResponse saveOne(int index, CreateOrderRequest request) {
+            try {
+                return processingMode == ProcessingMode.OUTBOX
+                        ? orderService.createOrder(request) : orderService.enqueueOrder(request);
+            } catch (RuntimeException ex) {
+                log.warn("Saving imported order {} failed", index, ex);
+                record(OrderImportResult.builder()
+                        .index(index)
+                        .outcome(Outcome.FAILED)
+                        .message(ex.getMessage())
+                        .build());
+                return null;
+            }
+        }
+        
+        private List<OrderResponse> createOrders(List<CreateOrderRequest> requests) {
+            return processingMode == ProcessingMode.OUTBOX
+                    ? orderService.createOrders(requests) : orderService.enqueueOrders(requests);
+        }
+        
+        private void record(OrderImportResult result) {
+            results.add(result);
+            counts.merge(result.getOutcome(), 1, Integer::sum);
+        }
+    }
+    
+    private void reserve(List<UUID> orderIds) {
+        try {
+            orderService.processOrders(orderIds);
+        } catch (RuntimeException ex) {
+            // The orders stay PENDING_RESERVING_STOCK and are picked up by the retry scheduler once due
+            log.error("Failed to reserve stock for {} imported orders", orderIds.size(), ex);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.domain.Order;
+import com.ecommerce.order.domain.OrderItem;
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderItemRequest;
+import com.ecommerce.order.dto.OrderItemResponse;
+import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.dto.inventory.StockReservationRequest;
+import com.ecommerce.order.repository.OrderRow;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Maps between order requests, entities, flat order rows and DTOs.
+ */
+@Component
+public class OrderMapper {
+
+    /**
+     * Builds a new order entity, with its items and total amount, from a creation request.
+     *
+     * @param request The order creation request
+     * @return The unsaved order in CREATED status
+     */
+    public Order mapToOrder(CreateOrderRequest request) {
+        Order order = Order.builder()
+                .customerId(request.getCustomerId())
+                .idempotencyKey(request.getIdempotencyKey())
+                .status(OrderStatus.CREATED)
+                .build();
+        
+        // Add items to order
+        for (OrderItemRequest itemRequest : request.getItems()) {
+            OrderItem item = OrderItem.builder()
+                    .productId(itemRequest.getProductId())
+                    .quantity(itemRequest.getQuantity())
+                    // We'll need to fetch product details from a product service in a real implementation
+                    .productName("Product " + itemRequest.getProductId())
+                    .unitPrice(BigDecimal.TEN) // Placeholder price
+                    .build();
+            
+            order.addItem(item);
+        }
+        
+        // Calculate total amount
+        BigDecimal totalAmount = order.getItems().stream()
+                .map(OrderItem::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        
+        order.setTotalAmount(totalAmount);
+        return order;
+    }
+
+    /**
+     * Maps an Order entity to an OrderResponse DTO.
+     *
+     * @param order The order entity to map
+     * @return The order response DTO
+     */
+    public OrderResponse mapToOrderResponse(Order order) {
+        List<OrderItemResponse> itemResponses = order.getItems().stream()
+                .map(this::mapToOrderItemResponse)
+                .collect(Collectors.toList());
+        
+        return OrderResponse.builder()
+                .id(order.getId())
+                .customerId(order.getCustomerId())
+                .status(order.getStatus())
+                .createdAt(order.getCreatedAt())
+                .updatedAt(order.getUpdatedAt())
+                .totalAmount(order.getTotalAmount())
+                .items(itemResponses)
+                .failureReason(order.getFailureReason())
+                .reservationAttempts(order.getReservationAttempts())
+                .lastReservationAttempt(order.getLastReservationAttempt())
+                .build();
+    }
+    
+    /**
+     * Maps an OrderItem entity to an OrderItemResponse DTO.
+     *
+     * @param item The order item entity to map
+     * @return The order item response DTO
+     */
+    public OrderItemResponse mapToOrderItemResponse(OrderItem item) {
+        return OrderItemResponse.builder()
+                .id(item.getId())
+                .productId(item.getProductId())
+                .productName(item.getProductName())
+                .quantity(item.getQuantity())
+                .unitPrice(item.getUnitPrice())
+                .subtotal(item.getSubtotal())
+                .build();
+    }
+    
+    /**
+     * Folds flat order/item rows into order responses, keeping the row order.
+     *
+     * @param rows Rows grouped by order
+     * @return One response per order
+     */
+    public List<OrderResponse> mapRowsToOrderResponses(List<OrderRow> rows) {
+        List<OrderResponse> responses = new ArrayList<>();
+        mapRowsToOrderResponses(rows.stream(), responses::add);
+        return responses;
+    }
+    
+    /**
+     * Folds a stream of flat order/item rows into order responses, handing each order to the
+     * consumer as soon as its last row has been read.
+     *
+     * @param rows Rows grouped by order
+     * @param consumer Receives each assembled order
+     */
+    public void mapRowsToOrderResponses(Stream<OrderRow> rows, Consumer<OrderResponse> consumer) {
+        OrderResponse[] current = new OrderResponse[1];
+        
+        rows.forEachOrdered(row -> {
+            if (current[0] == null || !current[0].getId().equals(row.id())) {
+                if (current[0] != null) {
+                    consumer.accept(current[0]);
+                }
+                current[0] = mapRowToOrderResponse(row);
+            }
+            if (row.itemId() != null) {
+                current[0].getItems().add(mapRowToOrderItemResponse(row));
+            }
+        });
+        
+        if (current[0] != null) {
+            consumer.accept(current[0]);
+        }
+    }
+    
+    /**
+     * Creates a reservation request from an order, with the order ID as its idempotency key. Must
+     * be called while the order's items can still be loaded.
+     *
+     * @param order The order to create a reservation request for
+     * @return The stock reservation request
+     */
+    public StockReservationRequest mapToReservationRequest(Order order) {
+        List<StockReservationRequest.ReservationItem> items = order.getItems().stream()
+                .map(this::mapToReservationItem)
+                .collect(Collectors.toList());
+        
+        return StockReservationRequest.builder()
+                .orderId(order.getId())
+                .items(items)
+                .idempotencyKey(order.getId().toString())
+                .build();
+    }
+    
+    /**
+     * Maps an order item to a reservation item.
+     *
+     * @param orderItem The order item to map
+     * @return The reservation item
+     */
+    private StockReservationRequest.ReservationItem mapToReservationItem(OrderItem orderItem) {
+        return StockReservationRequest.ReservationItem.builder()
+                .productId(orderItem.getProductId())
+                .quantity(orderItem.getQuantity())
+                .build();
+    }
+    
+    private OrderResponse mapRowToOrderResponse(OrderRow row) {
+        return OrderResponse.builder()
+                .id(row.id())
+                .customerId(row.customerId())
+                .status(row.status())
+                .createdAt(row.createdAt())
+                .updatedAt(row.updatedAt())
+                .totalAmount(row.totalAmount())
+                .items(new ArrayList<>())
+                .failureReason(row.failureReason())
+                .reservationAttempts(row.reservationAttempts())
+                .lastReservationAttempt(row.lastReservationAttempt())
+                .build();
+    }
+    
+    private OrderItemResponse mapRowToOrderItemResponse(OrderRow row) {
+        return OrderItemResponse.builder()
+                .id(row.itemId())
+                .productId(row.productId())
+                .productName(row.productName())
+                .quantity(row.quantity())
+                .unitPrice(row.unitPrice())
+                .subtotal(row.unitPrice().multiply(BigDecimal.valueOf(row.quantity())))
+                .build();
+    }
+}
@@ -3,30 +3,106 @@ package com.ecommerce.order.service;
 import com.ecommerce.order.domain.Order;
 import com.ecommerce.order.domain.OrderStatus;
 import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderPage;
 import com.ecommerce.order.dto.OrderResponse;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface OrderService {
     
     /**
      * Creates a new order with initial CREATED status.
+     * If the request carries an idempotency key that was already used, no order is created and
+     * the existing order is returned with its replayed flag set.
      *
      * @param request The order creation request
-     * @return The created order
+     * @return The created order, or the existing order for a repeated idempotency key
      */
     OrderResponse createOrder(CreateOrderRequest request);
     
+    /**
+     * Creates a batch of orders with initial CREATED status. Orders without an idempotency key
+     * are inserted together in one transaction using JDBC batch inserts; orders with a key go
+     * through {@link #createOrder(CreateOrderRequest)} so repeated keys are still detected.
+     *
+     * @param requests The order creation requests
+     * @return The created orders, in request order
+     */
+    List<OrderResponse> createOrders(List<CreateOrderRequest> requests);
+    
+    /**
+     * Creates a new order whose stock is reserved in the background. The order is persisted as
+     * PENDING_RESERVING_STOCK and due for a retry at once, so if the background reservation never
+     * runs, e.g. because the instance restarts, the retry scheduler reserves it instead.
+     *
+     * @param request The order creation request
+     * @return The created order, or the existing order for a repeated idempotency key
+     */
+    OrderResponse enqueueOrder(CreateOrderRequest request);
+    
+    /**
+     * Batch variant of {@link #enqueueOrder(CreateOrderRequest)}, inserted like
+     * {@link #createOrders(List)}.
+     *
+     * @param requests The order creation requests
+     * @return The created orders, in request order
+     */
+    List<OrderResponse> enqueueOrders(List<CreateOrderRequest> requests);
+    
     /**
      * Process the order by attempting to reserve stock from inventory.
-     * Updates order status based on the result.
+     * Updates order status based on the result. The attempt and the result are recorded in two
+     * short transactions, so no database connection is held during the inventory call. The
+     * attempt is claimed with a conditional update; if another processor holds the order, or its
+     * retry is not due yet, nothing is done and the current state is returned.
      *
      * @param orderId The ID of the order to process
      * @return The updated order
      */
     OrderResponse processOrder(UUID orderId);
     
+    /**
+     * Non-blocking variant of {@link #processOrder(UUID)}. The database work runs in short
+     * transactions and no thread is held while the inventory reservation is in flight.
+     *
+     * @param orderId The ID of the order to process
+     * @return A future completed with the updated order
+     */
+    CompletableFuture<OrderResponse> processOrderAsync(UUID orderId);
+    
+    /**
+     * Reserves stock for a batch of orders. Attempts are claimed for the whole batch with one
+     * conditional update, the reservations run concurrently outside any transaction, and the
+     * results are written back in one transaction, with one conditional update per distinct
+     * outcome. Orders that no longer await a reservation, or that another processor has claimed,
+     * are skipped.
+     *
+     * @param orderIds The IDs of the orders to process
+     */
+    void processOrders(List<UUID> orderIds);
+    
+    /**
+     * Moves orders whose reservation has expired to EXPIRED in one transaction. Orders that have
+     * moved on or whose deadline was extended in the meantime are left alone.
+     *
+     * @param orderIds The IDs of orders whose stock has been released
+     * @return The number of orders expired
+     */
+    int expireOrders(List<UUID> orderIds);
+    
+    /**
+     * Marks an order waiting for a reservation retry INVALID, unless another processor has
+     * claimed it for an attempt in the meantime or it has moved on.
+     *
+     * @param orderId The ID of the order to give up on
+     * @param failureReason Why the reservation was given up
+     * @return true if the order was marked INVALID
+     */
+    boolean abandonReservation(UUID orderId, String failureReason);
+    
     /**
      * Gets an order by its ID.
      *
@@ -43,6 +119,16 @@ public interface OrderService {
      */
     List<OrderResponse> getOrdersByCustomer(String customerId);
     
+    /**
+     * Gets one page of a customer's orders using keyset pagination on (createdAt, id).
+     *
+     * @param customerId The ID of the customer
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param limit The maximum page size, or null for the default
+     * @return The page of orders and the cursor for the next one
+     */
+    OrderPage getOrdersByCustomer(String customerId, String cursor, Integer limit);
+    
     /**
      * Gets orders by status.
      *
@@ -51,6 +137,25 @@ public interface OrderService {
      */
     List<OrderResponse> getOrdersByStatus(OrderStatus status);
     
+    /**
+     * Gets one page of orders in a status using keyset pagination on (createdAt, id).
+     *
+     * @param status The order status to filter by
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param limit The maximum page size, or null for the default
+     * @return The page of orders and the cursor for the next one
+     */
+    OrderPage getOrdersByStatus(OrderStatus status, String cursor, Integer limit);
+    
+    /**
+     * Streams every order in a status to the consumer, one at a time, without holding the
+     * result set in memory.
+     *
+     * @param status The order status to filter by
+     * @param consumer Receives each order in (createdAt, id) order
+     */
+    void streamOrdersByStatus(OrderStatus status, Consumer<OrderResponse> consumer);
+    
     /**
      * Updates the status of an order.
      *
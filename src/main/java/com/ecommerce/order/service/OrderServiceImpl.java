@@ -1,26 +1,60 @@
 package com.ecommerce.order.service;
 
 import com.ecommerce.order.domain.Order;
-import com.ecommerce.order.domain.OrderItem;
 import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.domain.OrderStatusChangedEvent;
+import com.ecommerce.order.domain.OutboxEvent;
+import com.ecommerce.order.domain.OutboxEventType;
 import com.ecommerce.order.dto.CreateOrderRequest;
-import com.ecommerce.order.dto.OrderItemRequest;
-import com.ecommerce.order.dto.OrderItemResponse;
+import com.ecommerce.order.dto.OrderCursor;
+import com.ecommerce.order.dto.OrderPage;
 import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.dto.inventory.StockReservationRequest;
 import com.ecommerce.order.dto.inventory.StockReservationResponse;
 import com.ecommerce.order.exception.InventoryServiceException;
 import com.ecommerce.order.exception.OrderNotFoundException;
 import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.OrderRow;
+import com.ecommerce.order.repository.OutboxEventRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
@@ -28,195 +62,898 @@ import java.util.stream.Collectors;
 public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
+    private final OutboxEventRepository outboxEventRepository;
     private final InventoryServiceClient inventoryServiceClient;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderMapper orderMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdempotencyStore idempotencyStore;
+    private final ConfirmedReservationCache confirmedReservations;
+    private final OrderTracer orderTracer;
+    private final MeterRegistry meterRegistry;
     
     @Value("${order-service.scheduler.max-attempts:5}")
     private int maxReservationAttempts;
     
+    @Value("${order-service.scheduler.retry-delay-seconds:30}")
+    private int retryDelaySeconds;
+    
+    @Value("${order-service.processing.mode:SYNC}")
+    private ProcessingMode processingMode;
+    
+    @Value("${order-service.reservation-expiry.ttl-minutes:15}")
+    private long reservationTtlMinutes;
+    
+    @Value("${order-service.outbox.concurrency:16}")
+    private int batchConcurrency;
+    
+    @Value("${order-service.pagination.default-limit:100}")
+    private int defaultPageSize;
+    
+    @Value("${order-service.pagination.max-limit:1000}")
+    private int maxPageSize;
+    
+    @Value("${order-service.order-cache.max-size:10000}")
+    private long orderCacheMaxSize;
+    
+    @Value("${order-service.order-cache.ttl-seconds:30}")
+    private long orderCacheTtlSeconds;
+    
+    // Responses for GET /api/orders/{id}; entries are evicted when this instance changes the order,
+    // and the TTL bounds staleness for changes made by other instances
+    private Cache<UUID, OrderResponse> orderCache;
+    
+    @PostConstruct
+    public void initOrderCache() {
+        orderCache = Caffeine.newBuilder()
+                .maximumSize(orderCacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(orderCacheTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, orderCache, "orders");
+    }
+    
     @Override
-    @Transactional
     public OrderResponse createOrder(CreateOrderRequest request) {
-        log.info("Creating new order for customer: {}", request.getCustomerId());
+        return createOrder(request, false);
+    }
+    
+    @Override
+    public OrderResponse enqueueOrder(CreateOrderRequest request) {
+        return createOrder(request, true);
+    }
+    
+    private OrderResponse createOrder(CreateOrderRequest request, boolean enqueue) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            OrderResponse response = orderTracer.inSpan("order.create", () -> doCreateOrder(request, enqueue));
+            outcome = response.isReplayed() ? "replayed" : "created";
+            return response;
+        } finally {
+            sample.stop(meterRegistry.timer("order.create", "outcome", outcome));
+        }
+    }
+    
+    private OrderResponse doCreateOrder(CreateOrderRequest request, boolean enqueue) {
+        String idempotencyKey = request.getIdempotencyKey();
+        if (idempotencyKey == null) {
+            return transactionTemplate.execute(status -> insertOrder(request, enqueue));
+        }
         
-        // Create order entity
-        Order order = Order.builder()
-                .customerId(request.getCustomerId())
-                .status(OrderStatus.CREATED)
-                .build();
+        // Fast path: a retry of a recently created order is answered without taking a lock
+        UUID existingOrderId = idempotencyStore.find(idempotencyKey);
+        if (existingOrderId != null) {
+            return replayOrder(existingOrderId);
+        }
         
-        // Add items to order
-        for (OrderItemRequest itemRequest : request.getItems()) {
-            OrderItem item = OrderItem.builder()
-                    .productId(itemRequest.getProductId())
-                    .quantity(itemRequest.getQuantity())
-                    // We'll need to fetch product details from a product service in a real implementation
-                    .productName("Product " + itemRequest.getProductId())
-                    .unitPrice(BigDecimal.TEN) // Placeholder price
-                    .build();
+        Lock lock = idempotencyStore.lockFor(idempotencyKey);
+        lock.lock();
+        try {
+            // A concurrent duplicate may have created the order while we waited for the lock
+            existingOrderId = idempotencyStore.find(idempotencyKey);
+            if (existingOrderId != null) {
+                return replayOrder(existingOrderId);
+            }
             
-            order.addItem(item);
+            OrderResponse response = transactionTemplate.execute(status -> orderRepository
+                    .findByIdempotencyKey(idempotencyKey)
+                    .map(this::toReplayedResponse)
+                    .orElseGet(() -> insertOrder(request, enqueue)));
+            idempotencyStore.remember(idempotencyKey, response.getId());
+            return response;
+        } catch (DataIntegrityViolationException ex) {
+            // Another instance inserted the same key between our lookup and our insert
+            log.info("Order with idempotency key {} was created concurrently, replaying it", idempotencyKey);
+            OrderResponse response = transactionTemplate.execute(status -> orderRepository
+                    .findByIdempotencyKey(idempotencyKey)
+                    .map(this::toReplayedResponse)
+                    .orElseThrow(() -> ex));
+            idempotencyStore.remember(idempotencyKey, response.getId());
+            return response;
+        } finally {
+            lock.unlock();
         }
+    }
+    
+    @Override
+    public List<OrderResponse> createOrders(List<CreateOrderRequest> requests) {
+        return createOrders(requests, false);
+    }
+    
+    @Override
+    public List<OrderResponse> enqueueOrders(List<CreateOrderRequest> requests) {
+        return createOrders(requests, true);
+    }
+    
+    private List<OrderResponse> createOrders(List<CreateOrderRequest> requests, boolean enqueue) {
+        log.info("Creating batch of {} orders", requests.size());
         
-        // Calculate total amount
-        BigDecimal totalAmount = order.getItems().stream()
-                .map(OrderItem::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Orders without an idempotency key are inserted in one transaction, flushed as JDBC batches
+        List<OrderResponse> inserted = transactionTemplate.execute(status -> requests.stream()
+                .filter(request -> request.getIdempotencyKey() == null)
+                .map(request -> insertOrder(request, enqueue))
+                .collect(Collectors.toList()));
         
-        order.setTotalAmount(totalAmount);
+        Iterator<OrderResponse> insertedOrders = inserted.iterator();
+        return requests.stream()
+                .map(request -> request.getIdempotencyKey() == null
+                        ? insertedOrders.next() : createOrder(request, enqueue))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Inserts a new order; must run inside a transaction.
+     *
+     * @param request The order creation request
+     * @param enqueue Whether to persist the order as due for a reservation, so the retry scheduler
+     *                reserves it if the caller's background reservation never runs
+     * @return The created order
+     */
+    private OrderResponse insertOrder(CreateOrderRequest request, boolean enqueue) {
+        log.info("Creating new order for customer: {}", request.getCustomerId());
+        
+        // Create order entity with its items and total
+        Order order = orderMapper.mapToOrder(request);
+        if (enqueue) {
+            order.setStatus(OrderStatus.PENDING_RESERVING_STOCK);
+            order.setNextRetryAt(LocalDateTime.now());
+        }
         
         // Save the order
         Order savedOrder = orderRepository.save(order);
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(savedOrder.getId(), null, savedOrder.getStatus()));
+        
+        if (processingMode == ProcessingMode.OUTBOX) {
+            // Committed atomically with the order; the outbox relay reserves the stock
+            outboxEventRepository.save(OutboxEvent.builder()
+                    .orderId(savedOrder.getId())
+                    .type(OutboxEventType.RESERVE_STOCK)
+                    .build());
+        }
         log.info("Order created with ID: {}", savedOrder.getId());
         
-        return mapToOrderResponse(savedOrder);
+        return orderMapper.mapToOrderResponse(savedOrder);
+    }
+    
+    /**
+     * Answers a repeated idempotency key with the current state of the order it created.
+     *
+     * @param orderId The order created for the key
+     * @return The order, flagged as replayed
+     */
+    private OrderResponse replayOrder(UUID orderId) {
+        return transactionTemplate.execute(status -> toReplayedResponse(getOrderEntity(orderId)));
+    }
+    
+    private OrderResponse toReplayedResponse(Order order) {
+        log.info("Replaying order {} for idempotency key {}", order.getId(), order.getIdempotencyKey());
+        OrderResponse response = orderMapper.mapToOrderResponse(order);
+        response.setReplayed(true);
+        return response;
     }
     
     @Override
-    @Transactional
     public OrderResponse processOrder(UUID orderId) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        OrderResponse response = null;
+        try {
+            response = orderTracer.inSpan("order.process", () -> doProcessOrder(orderId));
+            return response;
+        } finally {
+            sample.stop(processTimer(response));
+        }
+    }
+    
+    private OrderResponse doProcessOrder(UUID orderId) {
         log.info("Processing order: {}", orderId);
+        orderTracer.tag("order.id", orderId.toString());
         
-        // Get the order
-        Order order = getOrderEntity(orderId);
+        Order order = orderTracer.inSpan("order.start-reservation",
+                () -> transactionTemplate.execute(status -> startReservation(orderId)));
+        if (order == null) {
+            // Moved on, claimed by another processor, or just confirmed or marked INVALID
+            return getOrder(orderId);
+        }
         
-        // Check if max attempts reached
-        if (order.getReservationAttempts() >= maxReservationAttempts) {
-            log.warn("Maximum reservation attempts ({}) reached for order: {}", 
-                    maxReservationAttempts, orderId);
-            
-            order.setStatus(OrderStatus.INVALID);
-            order.setFailureReason("Maximum reservation attempts reached");
-            orderRepository.save(order);
-            
-            return mapToOrderResponse(order);
+        // The inventory call, with its retries and backoff, runs outside any transaction
+        StockReservationRequest reservationRequest = orderMapper.mapToReservationRequest(order);
+        ReservationOutcome outcome;
+        try {
+            StockReservationResponse reservationResponse = orderTracer.inSpan("inventory.reserve-stock",
+                    () -> inventoryServiceClient.reserveStock(reservationRequest));
+            outcome = reservationOutcome(orderId, reservationResponse);
+        } catch (InventoryServiceException ex) {
+            outcome = reservationOutcome(orderId, ex);
         }
         
-        // Increment reservation attempts
-        order.incrementReservationAttempts();
+        ReservationOutcome result = outcome;
+        return orderTracer.inSpan("order.write-result", () -> writeReservationOutcome(order, result));
+    }
+    
+    @Override
+    public CompletableFuture<OrderResponse> processOrderAsync(UUID orderId) {
+        log.info("Processing order asynchronously: {}", orderId);
         
-        // Update status to PENDING_RESERVING_STOCK if not already
-        if (order.getStatus() != OrderStatus.PENDING_RESERVING_STOCK) {
-            order.setStatus(OrderStatus.PENDING_RESERVING_STOCK);
+        Order order = transactionTemplate.execute(status -> startReservation(orderId));
+        if (order == null) {
+            // Moved on, claimed by another processor, or just confirmed or marked INVALID
+            return CompletableFuture.completedFuture(getOrder(orderId));
         }
         
-        // Save updated attempt count and status
-        orderRepository.save(order);
+        // The result is written back off the I/O thread, since JPA calls block
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return reserveStockReactive(orderMapper.mapToReservationRequest(order))
+                .publishOn(Schedulers.boundedElastic())
+                .map(outcome -> writeReservationOutcome(order, outcome))
+                .toFuture()
+                .whenComplete((response, ex) -> sample.stop(processTimer(response)));
+    }
+    
+    /**
+     * @param response The processed order, or null if processing failed
+     * @return The processing timer, tagged with the status the order ended up in
+     */
+    private Timer processTimer(OrderResponse response) {
+        String outcome = response == null ? "error" : response.getStatus().name();
+        return meterRegistry.timer("order.process", "outcome", outcome);
+    }
+    
+    @Override
+    public void processOrders(List<UUID> orderIds) {
+        log.info("Processing batch of {} orders", orderIds.size());
         
-        try {
-            // Call inventory service to reserve stock
-            StockReservationResponse reservationResponse = inventoryServiceClient.reserveStock(order);
-            
-            // Check if reservation was successful
-            if (reservationResponse.isSuccess()) {
-                // Update order status to PENDING_PAYMENT
-                order.setStatus(OrderStatus.PENDING_PAYMENT);
-                log.info("Stock reserved successfully for order: {}", orderId);
-            } else {
-                // Update order status to INVALID if reservation failed
-                order.setStatus(OrderStatus.INVALID);
-                order.setFailureReason(reservationResponse.getMessage());
-                log.warn("Failed to reserve stock for order: {}. Reason: {}", 
-                        orderId, reservationResponse.getMessage());
+        // Claim the whole batch in one transaction
+        List<Order> claimed = transactionTemplate.execute(status ->
+                claimReservations(orderRepository.findAllWithItemsByIdIn(orderIds)));
+        
+        // Reserve concurrently, outside any transaction
+        Map<UUID, ReservationOutcome> outcomes = Flux.fromIterable(claimed)
+                .flatMap(order -> reserveStockReactive(orderMapper.mapToReservationRequest(order))
+                        .map(outcome -> Map.entry(order.getId(), outcome)), batchConcurrency)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .block();
+        
+        if (outcomes == null || outcomes.isEmpty()) {
+            return;
+        }
+        
+        // Write every result back in a single transaction
+        transactionTemplate.executeWithoutResult(status -> completeReservations(claimed, outcomes));
+    }
+    
+    @Override
+    public int expireOrders(List<UUID> orderIds) {
+        LocalDateTime now = LocalDateTime.now();
+        
+        Integer expired = transactionTemplate.execute(status -> {
+            int count = 0;
+            for (Order order : orderRepository.findAllById(orderIds)) {
+                if (order.getStatus() != OrderStatus.PENDING_PAYMENT
+                        || order.getReservationExpiresAt() == null || order.getReservationExpiresAt().isAfter(now)) {
+                    continue;
+                }
+                
+                changeStatus(order, OrderStatus.EXPIRED);
+                order.setFailureReason("Reserved stock expired before payment");
+                orderChanged(order);
+                confirmedReservations.forget(order.getId());
+                count++;
             }
+            return count;
+        });
+        
+        log.info("Expired {} of {} orders whose reservations were released", expired, orderIds.size());
+        return expired == null ? 0 : expired;
+    }
+    
+    /**
+     * Reads the order and claims it for a reservation attempt; must run inside a transaction.
+     *
+     * @param orderId The order about to be reserved
+     * @return A snapshot of the claimed order with its items loaded, or null if it was not claimed
+     */
+    private Order startReservation(UUID orderId) {
+        Order order = orderRepository.findWithItemsById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId));
+        return claimReservation(order) ? order : null;
+    }
+    
+    /**
+     * Claims an order for a reservation attempt; must run inside a transaction. The order is not
+     * claimed if it no longer awaits a reservation, if inventory has already confirmed it, if it
+     * has no attempts left, or if another processor claimed it first.
+     *
+     * @param order A read-only snapshot of the order, brought up to date if it is claimed
+     * @return true if the inventory service should be called for this order
+     */
+    private boolean claimReservation(Order order) {
+        if (!claimable(order)) {
+            return false;
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        Duration retryDelay = Duration.ofSeconds(retryDelaySeconds);
+        int claimed = orderRepository.claimReservationAttempt(order.getId(), order.getStatus(), now,
+                now.plus(retryDelay), maxReservationAttempts);
+        if (claimed == 0) {
+            claimLost(order);
+            return false;
+        }
+        
+        claimed(order, now, retryDelay);
+        return true;
+    }
+    
+    /**
+     * Batch variant of {@link #claimReservation}; must run inside a transaction. Orders read in
+     * the same status are claimed by one conditional UPDATE, and only if it claims fewer orders
+     * than it was given are the claimed ones read back.
+     *
+     * @param orders Read-only snapshots of the orders, brought up to date if they are claimed
+     * @return The claimed orders, in the given order
+     */
+    private List<Order> claimReservations(List<Order> orders) {
+        Map<OrderStatus, List<Order>> claimable = orders.stream()
+                .filter(this::claimable)
+                .collect(Collectors.groupingBy(Order::getStatus, LinkedHashMap::new, Collectors.toList()));
+        
+        Set<UUID> claimedIds = new HashSet<>();
+        claimable.forEach((expectedStatus, candidates) -> {
+            // Truncated to the column's precision, so the claimed orders can be found by it
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+            Duration retryDelay = Duration.ofSeconds(retryDelaySeconds);
+            List<UUID> ids = candidates.stream().map(Order::getId).collect(Collectors.toList());
             
-            orderRepository.save(order);
-            return mapToOrderResponse(order);
-            
-        } catch (InventoryServiceException ex) {
-            log.error("Error reserving stock for order: {}", orderId, ex);
+            int claimed = orderRepository.claimReservationAttempts(ids, expectedStatus, now,
+                    now.plus(retryDelay), maxReservationAttempts);
+            Set<UUID> claimedInGroup = claimed == ids.size() ? Set.copyOf(ids)
+                    : Set.copyOf(orderRepository.findIdsClaimedAt(ids, now));
             
-            // If the error is not retryable, mark the order as INVALID
-            if (!ex.isRetryable()) {
-                order.setStatus(OrderStatus.INVALID);
-                order.setFailureReason("Stock reservation failed: " + ex.getMessage());
-                orderRepository.save(order);
+            for (Order order : candidates) {
+                if (claimedInGroup.contains(order.getId())) {
+                    claimed(order, now, retryDelay);
+                    claimedIds.add(order.getId());
+                } else {
+                    claimLost(order);
+                }
+            }
+        });
+        
+        return orders.stream()
+                .filter(order -> claimedIds.contains(order.getId()))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Decides whether an order is up for a claim; must run inside a transaction. An order that
+     * inventory has already confirmed is completed, and one without attempts left is marked INVALID
+     * once its last attempt is due, so that an attempt still in flight can write its outcome.
+     *
+     * @param order A read-only snapshot of the order
+     * @return false if the order no longer awaits a reservation, was completed or has no attempts left
+     */
+    private boolean claimable(Order order) {
+        if (!awaitsReservation(order)) {
+            log.info("Order {} is already {}; not reserving stock again", order.getId(), order.getStatus());
+            return false;
+        }
+        if (applyConfirmedReservation(order)) {
+            return false;
+        }
+        
+        // Check if max attempts reached
+        if (order.getReservationAttempts() >= maxReservationAttempts) {
+            // No further claim can move nextRetryAt, so the snapshot tells whether the last attempt is over
+            if (order.getNextRetryAt() != null && order.getNextRetryAt().isAfter(LocalDateTime.now())) {
+                log.info("Last reservation attempt for order {} may still be in flight; not marking it INVALID yet",
+                        order.getId());
+                return false;
             }
+            log.warn("Maximum reservation attempts ({}) reached for order: {}", 
+                    maxReservationAttempts, order.getId());
+            transitionStatus(order, OrderStatus.INVALID, "Maximum reservation attempts reached");
+            return false;
+        }
+        return true;
+    }
+    
+    private void claimed(Order order, LocalDateTime now, Duration retryDelay) {
+        OrderStatus previousStatus = order.getStatus();
+        order.incrementReservationAttempts(now, retryDelay);
+        meterRegistry.counter("order.reservation.attempts", 
+                "attempt", String.valueOf(order.getReservationAttempts())).increment();
+        statusChanged(order, previousStatus, OrderStatus.PENDING_RESERVING_STOCK, now);
+    }
+    
+    private void claimLost(Order order) {
+        log.info("Order {} was claimed by another processor or is not due for a retry yet", order.getId());
+        meterRegistry.counter("order.reservation.claim.conflicts").increment();
+    }
+    
+    /**
+     * Applies a reservation inventory has already confirmed, without calling it again. This
+     * happens when an earlier attempt's result could not be written back to the order.
+     *
+     * @param order A read-only snapshot of an order that awaits a reservation
+     * @return true if the confirmed reservation was handled
+     */
+    private boolean applyConfirmedReservation(Order order) {
+        StockReservationResponse confirmed = confirmedReservations.find(order.getId());
+        if (confirmed == null) {
+            return false;
+        }
+        
+        log.info("Stock for order {} was already confirmed by inventory; skipping the call", order.getId());
+        completeReservation(order, reservationOutcome(order.getId(), confirmed));
+        return true;
+    }
+    
+    /**
+     * Reserves stock on the non-blocking client.
+     *
+     * @param reservationRequest The reservation request
+     * @return A Mono emitting the outcome to apply to the order once the call has completed
+     */
+    private Mono<ReservationOutcome> reserveStockReactive(StockReservationRequest reservationRequest) {
+        UUID orderId = reservationRequest.getOrderId();
+        return inventoryServiceClient.reserveStockReactive(reservationRequest)
+                .map(reservationResponse -> reservationOutcome(orderId, reservationResponse))
+                .onErrorResume(InventoryServiceException.class, ex -> Mono.just(reservationOutcome(orderId, ex)));
+    }
+    
+    /**
+     * Whether the order still needs stock reserved. An outbox entry can be relayed twice if the
+     * service stops between writing the result and deleting the entry; the second time the
+     * order has already moved on and must not be reserved again.
+     */
+    private boolean awaitsReservation(Order order) {
+        return order.getStatus() == OrderStatus.CREATED || order.getStatus() == OrderStatus.PENDING_RESERVING_STOCK;
+    }
+    
+    /**
+     * Interprets the inventory service's answer.
+     *
+     * @param orderId The order that was reserved
+     * @param reservationResponse The response from the inventory service
+     * @return The outcome to apply to the order
+     */
+    private ReservationOutcome reservationOutcome(UUID orderId, StockReservationResponse reservationResponse) {
+        // Check if reservation was successful
+        if (reservationResponse.isSuccess()) {
+            log.info("Stock reserved successfully for order: {}", orderId);
+            return new ReservationOutcome(OrderStatus.PENDING_PAYMENT, null);
+        }
+        
+        // The order is INVALID if reservation failed
+        log.warn("Failed to reserve stock for order: {}. Reason: {}", orderId, reservationResponse.getMessage());
+        return new ReservationOutcome(OrderStatus.INVALID, reservationResponse.getMessage());
+    }
+    
+    /**
+     * Interprets a failed inventory call.
+     *
+     * @param orderId The order that was being reserved
+     * @param ex The error raised by the inventory client
+     * @return The outcome to apply to the order
+     */
+    private ReservationOutcome reservationOutcome(UUID orderId, InventoryServiceException ex) {
+        log.error("Error reserving stock for order: {}", orderId, ex);
+        
+        // For retryable errors, the order remains in PENDING_RESERVING_STOCK state
+        // and will be retried later by the scheduler
+        if (ex.isRetryable()) {
+            return ReservationOutcome.UNCHANGED;
+        }
+        
+        // If the error is not retryable, mark the order as INVALID
+        return new ReservationOutcome(OrderStatus.INVALID, "Stock reservation failed: " + ex.getMessage());
+    }
+    
+    /**
+     * Writes the outcome of a single order's reservation in its own transaction.
+     *
+     * @param order A snapshot of the order as it was claimed, with its items loaded
+     * @param outcome The outcome of the reservation
+     * @return The updated order
+     */
+    private OrderResponse writeReservationOutcome(Order order, ReservationOutcome outcome) {
+        if (outcome.status() == null) {
+            // Nothing to write; the attempt is already recorded
+            return orderMapper.mapToOrderResponse(order);
+        }
+        
+        return transactionTemplate.execute(status -> completeReservation(order, outcome)
+                ? orderMapper.mapToOrderResponse(order)
+                : orderMapper.mapToOrderResponse(getOrderEntity(order.getId())));
+    }
+    
+    /**
+     * Moves a claimed order to the status its reservation outcome calls for; must run inside a
+     * transaction. Nothing is written if the order has left the status it was claimed in, e.g.
+     * because another processor completed it first; stock reserved for it is then released if it
+     * was marked INVALID in the meantime.
+     *
+     * @param order A snapshot of the order, brought up to date if it is moved
+     * @param outcome The outcome of the reservation
+     * @return true if the outcome was written or there was nothing to write
+     */
+    private boolean completeReservation(Order order, ReservationOutcome outcome) {
+        if (outcome.status() == null) {
+            return true;
+        }
+        if (transitionStatus(order, outcome.status(), outcome.failureReason())) {
+            return true;
+        }
+        
+        log.warn("Order {} left {} while its stock was being reserved; discarding the {} outcome",
+                order.getId(), order.getStatus(), outcome.status());
+        if (outcome.status() == OrderStatus.PENDING_PAYMENT) {
+            releaseDiscardedReservations(List.of(order.getId()));
+        }
+        return false;
+    }
+    
+    /**
+     * Batch variant of {@link #completeReservation}; must run inside a transaction. Orders claimed
+     * in the same status with the same outcome are moved by one conditional UPDATE. Only if it
+     * moves fewer orders than it was given are the moved ones read back; the others had left the
+     * status they were claimed in, and their outcome is discarded the same way.
+     *
+     * @param claimed Snapshots of the claimed orders, brought up to date if they are moved
+     * @param outcomes The outcomes of the reservations, by order ID
+     */
+    private void completeReservations(List<Order> claimed, Map<UUID, ReservationOutcome> outcomes) {
+        Map<Transition, List<Order>> transitions = claimed.stream()
+                .filter(order -> outcomes.containsKey(order.getId()) && outcomes.get(order.getId()).status() != null)
+                .collect(Collectors.groupingBy(order -> new Transition(order.getStatus(), outcomes.get(order.getId())),
+                        LinkedHashMap::new, Collectors.toList()));
+        
+        List<UUID> discardedReservations = new ArrayList<>();
+        transitions.forEach((transition, orders) -> {
+            // Truncated to the column's precision, so the moved orders can be found by it
+            LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+            OrderStatus status = transition.outcome().status();
+            String failureReason = transition.outcome().failureReason();
+            LocalDateTime reservationExpiresAt = reservationExpiry(status, now);
+            List<UUID> ids = orders.stream().map(Order::getId).collect(Collectors.toList());
             
-            // For retryable errors, the order remains in PENDING_RESERVING_STOCK state
-            // and will be retried later by the scheduler
+            int moved = orderRepository.transitionStatuses(ids, transition.from(), status, failureReason,
+                    reservationExpiresAt, now);
+            Set<UUID> movedIds = moved == ids.size() ? Set.copyOf(ids)
+                    : Set.copyOf(orderRepository.findIdsTransitionedAt(ids, status, now));
             
-            return mapToOrderResponse(order);
+            for (Order order : orders) {
+                if (movedIds.contains(order.getId())) {
+                    transitioned(order, status, failureReason, reservationExpiresAt, now);
+                } else {
+                    log.warn("Order {} left {} while its stock was being reserved; discarding the {} outcome",
+                            order.getId(), transition.from(), status);
+                    if (status == OrderStatus.PENDING_PAYMENT) {
+                        discardedReservations.add(order.getId());
+                    }
+                }
+            }
+        });
+        
+        if (!discardedReservations.isEmpty()) {
+            releaseDiscardedReservations(discardedReservations);
+        }
+    }
+    
+    /**
+     * Releases the stock of confirmed reservations whose outcome was discarded; must run inside a
+     * transaction. Only orders that were marked INVALID in the meantime are released. An order that
+     * another processor moved to PENDING_PAYMENT holds the very same reservation, since both were
+     * made with the order ID as idempotency key. The release is sent once the transaction commits.
+     *
+     * @param orderIds The orders whose reservation inventory confirmed
+     */
+    private void releaseDiscardedReservations(List<UUID> orderIds) {
+        List<UUID> invalidIds = orderRepository.findAllById(orderIds).stream()
+                .filter(order -> order.getStatus() == OrderStatus.INVALID)
+                .map(Order::getId)
+                .collect(Collectors.toList());
+        if (invalidIds.isEmpty()) {
+            return;
+        }
+        
+        invalidIds.forEach(confirmedReservations::forget);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                releaseStock(invalidIds);
+            }
+        });
+    }
+    
+    private void releaseStock(List<UUID> orderIds) {
+        try {
+            inventoryServiceClient.releaseStock(orderIds);
+            log.info("Released stock for {} INVALID orders whose reservation was confirmed late", orderIds.size());
+        } catch (RuntimeException ex) {
+            // No order refers to the reservation any more; inventory holds the stock until it expires it
+            log.error("Failed to release stock for {} INVALID orders whose reservation was confirmed late",
+                    orderIds.size(), ex);
+        }
+    }
+    
+    /**
+     * Moves an order to a new status with one conditional UPDATE that only applies if the order is
+     * still in the status of the snapshot; must run inside a transaction.
+     *
+     * @param order A snapshot of the order, brought up to date if it is moved
+     * @param status The new status
+     * @param failureReason Why the order failed, or null to keep the current reason
+     * @return true if the order was moved, false if its status had already changed
+     */
+    private boolean transitionStatus(Order order, OrderStatus status, String failureReason) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime reservationExpiresAt = reservationExpiry(status, now);
+        if (orderRepository.transitionStatus(order.getId(), order.getStatus(), status, failureReason,
+                reservationExpiresAt, now) == 0) {
+            return false;
+        }
+        
+        transitioned(order, status, failureReason, reservationExpiresAt, now);
+        return true;
+    }
+    
+    /**
+     * Brings the snapshot of an order that a conditional UPDATE has just moved up to date, rather
+     * than reading back what was written, and publishes the change.
+     */
+    private void transitioned(Order order, OrderStatus status, String failureReason,
+                              LocalDateTime reservationExpiresAt, LocalDateTime now) {
+        if (failureReason != null) {
+            order.setFailureReason(failureReason);
+        }
+        order.setReservationExpiresAt(reservationExpiresAt);
+        order.setNextRetryAt(null);
+        statusChanged(order, order.getStatus(), status, now);
+    }
+    
+    /**
+     * Records on the snapshot a status change that a conditional UPDATE has just made, and
+     * publishes it the same way {@link #changeStatus} does for managed orders.
+     */
+    private void statusChanged(Order order, OrderStatus previousStatus, OrderStatus status, LocalDateTime now) {
+        order.setStatus(status);
+        order.setUpdatedAt(now);
+        order.setVersion(order.getVersion() + 1);
+        if (previousStatus != status) {
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(order.getId(), previousStatus, status));
         }
+        evictAfterCommit(order.getId());
+    }
+    
+    @Override
+    public boolean abandonReservation(UUID orderId, String failureReason) {
+        Boolean abandoned = transactionTemplate.execute(status -> {
+            if (orderRepository.abandonReservation(orderId, failureReason, LocalDateTime.now()) == 0) {
+                return false;
+            }
+            eventPublisher.publishEvent(new OrderStatusChangedEvent(orderId,
+                    OrderStatus.PENDING_RESERVING_STOCK, OrderStatus.INVALID));
+            evictAfterCommit(orderId);
+            return true;
+        });
+        return Boolean.TRUE.equals(abandoned);
+    }
+    
+    /**
+     * The result of a reservation attempt.
+     *
+     * @param status The status the order moves to, or null if it stays pending for a retry
+     * @param failureReason Why the reservation failed, or null to keep the current reason
+     */
+    private record ReservationOutcome(OrderStatus status, String failureReason) {
+        
+        static final ReservationOutcome UNCHANGED = new ReservationOutcome(null, null);
+    }
+    
+    /**
+     * A status change shared by the orders of a batch that are written with one UPDATE.
+     *
+     * @param from The status the orders were claimed in
+     * @param outcome The outcome of their reservations
+     */
+    private record Transition(OrderStatus from, ReservationOutcome outcome) {
     }
     
     @Override
     public OrderResponse getOrder(UUID orderId) {
-        Order order = getOrderEntity(orderId);
-        return mapToOrderResponse(order);
+        // Concurrent misses for the same order share one load
+        return orderCache.get(orderId, id -> transactionTemplate.execute(status ->
+                orderMapper.mapToOrderResponse(getOrderEntity(id))));
     }
     
     @Override
+    @Transactional
     public List<OrderResponse> getOrdersByCustomer(String customerId) {
         List<Order> orders = orderRepository.findByCustomerId(customerId);
         return orders.stream()
-                .map(this::mapToOrderResponse)
+                .map(orderMapper::mapToOrderResponse)
                 .collect(Collectors.toList());
     }
     
     @Override
+    @Transactional
     public List<OrderResponse> getOrdersByStatus(OrderStatus status) {
         List<Order> orders = orderRepository.findByStatus(status);
         return orders.stream()
-                .map(this::mapToOrderResponse)
+                .map(orderMapper::mapToOrderResponse)
                 .collect(Collectors.toList());
     }
     
+    @Override
+    @Transactional
+    public OrderPage getOrdersByCustomer(String customerId, String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        // Fetch one extra row to learn whether another page follows
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        
+        List<UUID> orderIds = cursor == null
+                ? orderRepository.findPageByCustomerId(customerId, pageable)
+                : findPageByCustomerIdAfter(customerId, OrderCursor.decode(cursor), pageable);
+        return toPage(orderIds, pageSize);
+    }
+    
+    @Override
+    @Transactional
+    public OrderPage getOrdersByStatus(OrderStatus status, String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        // Fetch one extra row to learn whether another page follows
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        
+        List<UUID> orderIds = cursor == null
+                ? orderRepository.findPageByStatus(status, pageable)
+                : findPageByStatusAfter(status, OrderCursor.decode(cursor), pageable);
+        return toPage(orderIds, pageSize);
+    }
+    
+    @Override
+    @Transactional
+    public void streamOrdersByStatus(OrderStatus status, Consumer<OrderResponse> consumer) {
+        // DTO rows are not managed entities, so nothing accumulates in the persistence context
+        try (Stream<OrderRow> rows = orderRepository.streamRowsByStatus(status)) {
+            orderMapper.mapRowsToOrderResponses(rows, consumer);
+        }
+    }
+    
+    private List<UUID> findPageByCustomerIdAfter(String customerId, OrderCursor after, Pageable pageable) {
+        return orderRepository.findPageByCustomerIdAfter(customerId, after.createdAt(), after.id(), pageable);
+    }
+    
+    private List<UUID> findPageByStatusAfter(OrderStatus status, OrderCursor after, Pageable pageable) {
+        return orderRepository.findPageByStatusAfter(status, after.createdAt(), after.id(), pageable);
+    }
+    
+    private int resolvePageSize(Integer limit) {
+        if (limit == null || limit < 1) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+    
+    /**
+     * Loads a page of orders with their items from a single flat projection query, so the
+     * statement count does not grow with the page size.
+     */
+    private OrderPage toPage(List<UUID> orderIds, int pageSize) {
+        boolean hasMore = orderIds.size() > pageSize;
+        List<UUID> pageIds = hasMore ? orderIds.subList(0, pageSize) : orderIds;
+        
+        List<OrderResponse> orders = pageIds.isEmpty()
+                ? List.of()
+                : orderMapper.mapRowsToOrderResponses(orderRepository.findRowsByIdIn(pageIds));
+        
+        String nextCursor = null;
+        if (hasMore) {
+            OrderResponse last = orders.get(orders.size() - 1);
+            nextCursor = new OrderCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        
+        return OrderPage.builder()
+                .orders(orders)
+                .nextCursor(nextCursor)
+                .build();
+    }
+    
     @Override
     @Transactional
     public OrderResponse updateOrderStatus(UUID orderId, OrderStatus status, String failureReason) {
         Order order = getOrderEntity(orderId);
-        order.setStatus(status);
+        changeStatus(order, status);
         
         if (failureReason != null) {
             order.setFailureReason(failureReason);
         }
         
-        Order updatedOrder = orderRepository.save(order);
+        orderChanged(order);
         log.info("Updated order {} status to {}", orderId, status);
         
-        return mapToOrderResponse(updatedOrder);
+        return orderMapper.mapToOrderResponse(order);
     }
     
     /**
-     * Maps an Order entity to an OrderResponse DTO.
+     * Moves the order to a new status and publishes the transition. Listeners that must only
+     * see committed changes observe it after the surrounding transaction commits.
      *
-     * @param order The order entity to map
-     * @return The order response DTO
+     * @param order The order to update
+     * @param status The new status
      */
-    private OrderResponse mapToOrderResponse(Order order) {
-        List<OrderItemResponse> itemResponses = order.getItems().stream()
-                .map(this::mapToOrderItemResponse)
-                .collect(Collectors.toList());
-        
-        return OrderResponse.builder()
-                .id(order.getId())
-                .customerId(order.getCustomerId())
-                .status(order.getStatus())
-                .createdAt(order.getCreatedAt())
-                .updatedAt(order.getUpdatedAt())
-                .totalAmount(order.getTotalAmount())
-                .items(itemResponses)
-                .failureReason(order.getFailureReason())
-                .reservationAttempts(order.getReservationAttempts())
-                .lastReservationAttempt(order.getLastReservationAttempt())
-                .build();
+    private void changeStatus(Order order, OrderStatus status) {
+        OrderStatus previousStatus = order.getStatus();
+        if (previousStatus == status) {
+            return;
+        }
+        order.setStatus(status);
+        LocalDateTime reservationExpiresAt = reservationExpiry(status, LocalDateTime.now());
+        if (reservationExpiresAt != null) {
+            order.setReservationExpiresAt(reservationExpiresAt);
+        }
+        eventPublisher.publishEvent(new OrderStatusChangedEvent(order.getId(), previousStatus, status));
+    }
+    
+    /**
+     * @param status The status an order is moving to
+     * @param now The time of the change
+     * @return Until when reserved stock is held for the order, or null if the status holds none
+     */
+    private LocalDateTime reservationExpiry(OrderStatus status, LocalDateTime now) {
+        // Reserved stock is held for the order until it is paid or the hold expires
+        return status == OrderStatus.PENDING_PAYMENT ? now.plusMinutes(reservationTtlMinutes) : null;
     }
     
     /**
-     * Maps an OrderItem entity to an OrderItemResponse DTO.
+     * Drops the cached response of a changed order once the change has committed, so the next
+     * read loads the new state. The order must be managed: dirty checking flushes the change on
+     * commit, whereas saving it again would merge it and cascade the merge to every item.
      *
-     * @param item The order item entity to map
-     * @return The order item response DTO
+     * @param order The modified order
      */
-    private OrderItemResponse mapToOrderItemResponse(OrderItem item) {
-        return OrderItemResponse.builder()
-                .id(item.getId())
-                .productId(item.getProductId())
-                .productName(item.getProductName())
-                .quantity(item.getQuantity())
-                .unitPrice(item.getUnitPrice())
-                .subtotal(item.getSubtotal())
-                .build();
+    private void orderChanged(Order order) {
+        evictAfterCommit(order.getId());
+    }
+    
+    private void evictAfterCommit(UUID orderId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            orderCache.invalidate(orderId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                // Evict before after-commit event listeners run, so they read the new state
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+            
+            @Override
+            public void afterCommit() {
+                orderCache.invalidate(orderId);
+            }
+        });
     }
     
     /**
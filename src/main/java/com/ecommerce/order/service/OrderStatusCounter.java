@@ -0,0 +1,107 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.domain.OrderStatusChangedEvent;
+import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.StatusCount;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory order count per status, kept current from committed status transitions so the
+ * dashboard can read it at O(1) cost. The counts are seeded from a single GROUP BY query at
+ * startup and periodically re-synced from it, which also corrects transitions made by other
+ * instances.
+ * <p>
+ * The counts are published as the {@code order.orders} gauge per status, and every committed
+ * transition is counted in {@code order.status.transitions}.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderStatusCounter {
+
+    private final OrderRepository orderRepository;
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<OrderStatus, AtomicLong> counts = createCounts();
+    
+    private static Map<OrderStatus, AtomicLong> createCounts() {
+        Map<OrderStatus, AtomicLong> counts = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            counts.put(status, new AtomicLong());
+        }
+        return counts;
+    }
+    
+    @PostConstruct
+    public void registerGauges() {
+        counts.forEach((status, count) -> meterRegistry.gauge("order.orders", Tags.of("status", status.name()), count));
+    }
+    
+    /**
+     * Applies a committed status transition to the counts.
+     *
+     * @param event The status change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(OrderStatusChangedEvent event) {
+        if (event.previousStatus() != null) {
+            counts.get(event.previousStatus()).decrementAndGet();
+        }
+        counts.get(event.newStatus()).incrementAndGet();
+        
+        meterRegistry.counter("order.status.transitions",
+                "from", event.previousStatus() == null ? "NONE" : event.previousStatus().name(),
+                "to", event.newStatus().name()).increment();
+    }
+    
+    /**
+     * Reloads the counts from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedRateString = "${order-service.dashboard.counter-resync-ms:300000}",
+            initialDelayString = "${order-service.dashboard.counter-resync-ms:300000}")
+    public void resync() {
+        Map<OrderStatus, Long> current = countFromDatabase();
+        current.forEach((status, count) -> counts.get(status).set(count));
+        log.debug("Re-synced order status counts: {}", current);
+    }
+    
+    /**
+     * @return A copy of the current count for every status
+     */
+    public Map<OrderStatus, Long> snapshot() {
+        Map<OrderStatus, Long> snapshot = new EnumMap<>(OrderStatus.class);
+        counts.forEach((status, count) -> snapshot.put(status, count.get()));
+        return snapshot;
+    }
+    
+    /**
+     * Counts orders per status with a single GROUP BY query.
+     *
+     * @return The count for every status, including zero counts
+     */
+    public Map<OrderStatus, Long> countFromDatabase() {
+        Map<OrderStatus, Long> result = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : OrderStatus.values()) {
+            result.put(status, 0L);
+        }
+        for (StatusCount row : orderRepository.countGroupedByStatus()) {
+            result.put(row.getStatus(), row.getCount());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,50 @@
+package com.ecommerce.order.service;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+/**
+ * Wraps steps of the order lifecycle in child spans of the current trace, so a slow order can
+ * be broken down into database work, inventory calls and time spent waiting. Spans are only
+ * recorded for sampled traces; otherwise these calls are close to free.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderTracer {
+
+    private final Tracer tracer;
+    
+    /**
+     * Run work in a new span that is current for its duration
+     * @param name The span name
+     * @param work The work to run
+     * @return The result of the work
+     */
+    public <T> T inSpan(String name, Supplier<T> work) {
+        Span span = tracer.nextSpan().name(name).start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            return work.get();
+        } catch (RuntimeException ex) {
+            span.error(ex);
+            throw ex;
+        } finally {
+            span.end();
+        }
+    }
+    
+    /**
+     * Tag the current span, if there is one
+     * @param key The tag key
+     * @param value The tag value
+     */
+    public void tag(String key, String value) {
+        Span span = tracer.currentSpan();
+        if (span != null) {
+            span.tag(key, value);
+        }
+    }
+}
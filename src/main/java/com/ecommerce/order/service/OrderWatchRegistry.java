@@ -0,0 +1,77 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.domain.OrderStatusChangedEvent;
+import com.ecommerce.order.dto.OrderResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * In-process registry of clients waiting for an order's status to change.
+ * Watchers are plain callbacks kept in a concurrent map keyed by order ID, so an idle watcher
+ * costs a queue node and holds no thread. When a status change commits, every watcher of that
+ * order is removed and notified with the order's new state, which is loaded once for all of them.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderWatchRegistry {
+
+    private final OrderService orderService;
+    private final MeterRegistry meterRegistry;
+    
+    private final Map<UUID, Queue<Consumer<OrderResponse>>> watchers = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void registerMetrics() {
+        meterRegistry.gaugeMapSize("order.watch.orders", Tags.empty(), watchers);
+    }
+    
+    /**
+     * Register a watcher for the next status change of an order
+     * @param orderId The order to watch
+     * @param watcher Called once with the order after its status changed
+     * @return Removes the watcher; call it when the watcher is no longer waiting
+     */
+    public Runnable watch(UUID orderId, Consumer<OrderResponse> watcher) {
+        watchers.compute(orderId, (id, queue) -> {
+            Queue<Consumer<OrderResponse>> orderWatchers = queue != null ? queue : new ConcurrentLinkedQueue<>();
+            orderWatchers.add(watcher);
+            return orderWatchers;
+        });
+        
+        return () -> watchers.computeIfPresent(orderId, (id, queue) -> {
+            queue.remove(watcher);
+            return queue.isEmpty() ? null : queue;
+        });
+    }
+    
+    /**
+     * Notifies the watchers of an order once its status change has committed.
+     *
+     * @param event The status change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChanged(OrderStatusChangedEvent event) {
+        Queue<Consumer<OrderResponse>> orderWatchers = watchers.remove(event.orderId());
+        if (orderWatchers == null) {
+            return;
+        }
+        
+        OrderResponse order = orderService.getOrder(event.orderId());
+        log.debug("Notifying {} watcher(s) of order {} status change to {}",
+                orderWatchers.size(), event.orderId(), event.newStatus());
+        orderWatchers.forEach(watcher -> watcher.accept(order));
+    }
+}
@@ -0,0 +1,18 @@
+package com.ecommerce.order.service;
+
+/**
+ * How the order endpoints drive stock reservation.
+ */
+public enum ProcessingMode {
+    // Reserve stock on the request thread, blocking until the inventory call completes
+    SYNC,
+    
+    // Reserve stock on the reactive client and release the request thread while the call is in flight
+    REACTIVE,
+    
+    // Record the reservation in the outbox with the new order; the outbox relay reserves it in batches
+    OUTBOX,
+    
+    // Persist the order and return 202 at once; the reservation runs on a bounded work queue
+    ACCEPT
+}
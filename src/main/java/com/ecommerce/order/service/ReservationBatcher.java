@@ -0,0 +1,187 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.inventory.BatchStockReservationRequest;
+import com.ecommerce.order.dto.inventory.BatchStockReservationResponse;
+import com.ecommerce.order.dto.inventory.StockReservationRequest;
+import com.ecommerce.order.dto.inventory.StockReservationResponse;
+import com.ecommerce.order.exception.InventoryServiceException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces concurrent stock reservation requests into multi-order calls to the inventory service.
+ * A batch is flushed as soon as it reaches the configured size, or when the time window opened
+ * by its first request closes, whichever happens first.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ReservationBatcher {
+
+    private final WebClient inventoryWebClient;
+    
+    @Value("${external-service.inventory.timeout:3000}")
+    private int timeout;
+    
+    @Value("${external-service.inventory.batch.max-size:50}")
+    private int maxBatchSize;
+    
+    @Value("${external-service.inventory.batch.max-wait-ms:10}")
+    private long maxWaitMs;
+    
+    private final Object lock = new Object();
+    
+    private List<PendingReservation> pending = new ArrayList<>();
+    
+    private ScheduledFuture<?> scheduledFlush;
+    
+    private ScheduledExecutorService flushTimer;
+    
+    @PostConstruct
+    public void init() {
+        flushTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reservation-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        flushOnTimer();
+        flushTimer.shutdown();
+    }
+    
+    /**
+     * Queues a reservation request for the next batch.
+     *
+     * @param request The reservation request for a single order
+     * @return A future completed with that order's own reservation result
+     */
+    public CompletableFuture<StockReservationResponse> submit(StockReservationRequest request) {
+        PendingReservation reservation = new PendingReservation(request, new CompletableFuture<>());
+        List<PendingReservation> batch = null;
+        
+        synchronized (lock) {
+            pending.add(reservation);
+            if (pending.size() >= maxBatchSize) {
+                batch = drain();
+            } else if (pending.size() == 1) {
+                // First request of a new window starts the flush timer
+                scheduledFlush = flushTimer.schedule(this::flushOnTimer, maxWaitMs, TimeUnit.MILLISECONDS);
+            }
+        }
+        
+        if (batch != null) {
+            send(batch);
+        }
+        return reservation.result();
+    }
+    
+    private void flushOnTimer() {
+        List<PendingReservation> batch;
+        synchronized (lock) {
+            batch = pending.isEmpty() ? null : drain();
+        }
+        if (batch != null) {
+            send(batch);
+        }
+    }
+    
+    private List<PendingReservation> drain() {
+        List<PendingReservation> batch = pending;
+        pending = new ArrayList<>(maxBatchSize);
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+    
+    /**
+     * Sends one batch without blocking the caller; each pending future is completed
+     * from the response (or failed with the transport error).
+     */
+    private void send(List<PendingReservation> batch) {
+        log.debug("Flushing reservation batch of {} orders", batch.size());
+        
+        BatchStockReservationRequest request = BatchStockReservationRequest.builder()
+                .reservations(batch.stream().map(PendingReservation::request).collect(Collectors.toList()))
+                .build();
+        
+        inventoryWebClient.post()
+                .uri("/reserve/batch")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(BatchStockReservationResponse.class)
+                .timeout(Duration.ofMillis(timeout))
+                .subscribe(
+                        response -> complete(batch, response),
+                        error -> batch.forEach(reservation -> reservation.result().completeExceptionally(error)));
+    }
+    
+    private void complete(List<PendingReservation> batch, BatchStockReservationResponse response) {
+        Map<UUID, StockReservationResponse> resultsByOrder = indexByOrder(response);
+        
+        for (PendingReservation reservation : batch) {
+            UUID orderId = reservation.request().getOrderId();
+            StockReservationResponse result = resultsByOrder.get(orderId);
+            if (result != null) {
+                reservation.result().complete(result);
+            } else {
+                reservation.result().completeExceptionally(new InventoryServiceException(
+                        "Inventory batch response contained no result for order " + orderId,
+                        true, HttpStatus.BAD_GATEWAY));
+            }
+        }
+    }
+    
+    /**
+     * Indexes the batch results by order. A result without an order ID cannot be matched to a
+     * caller and is skipped; of several results for one order the first is kept. Either way the
+     * rest of the batch is still completed, and a caller left without a result fails on its own.
+     *
+     * @param response The inventory service's batch response
+     * @return The results by order ID
+     */
+    private Map<UUID, StockReservationResponse> indexByOrder(BatchStockReservationResponse response) {
+        Map<UUID, StockReservationResponse> resultsByOrder = new HashMap<>();
+        if (response == null || response.getResults() == null) {
+            return resultsByOrder;
+        }
+        
+        for (StockReservationResponse result : response.getResults()) {
+            if (result == null || result.getOrderId() == null) {
+                log.warn("Skipping inventory batch result without an order ID: {}", result);
+                continue;
+            }
+            if (resultsByOrder.putIfAbsent(result.getOrderId(), result) != null) {
+                log.warn("Ignoring duplicate inventory batch result for order {}", result.getOrderId());
+            }
+        }
+        return resultsByOrder;
+    }
+    
+    private record PendingReservation(StockReservationRequest request,
+                                      CompletableFuture<StockReservationResponse> result) {
+    }
+}
@@ -0,0 +1,142 @@
+package com.ecommerce.order.service;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.ecommerce.order.dto.TraceSummary;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory span exporter. Finished spans of sampled traces are grouped by their local root;
+ * when the root finishes, the trace is kept if it took at least the slow threshold. Slow traces
+ * go into a fixed-size min-heap ordered by duration: once it is full, a slower trace replaces the
+ * fastest one kept, so the slowest traces survive and memory stays bounded without any external
+ * collector.
+ * <p>
+ * Spans whose root never finishes in this service are dropped after a timeout.
+ */
+@Component
+@Slf4j
+public class SlowTraceRecorder extends SpanHandler {
+
+    private static final Comparator<TraceSummary> BY_DURATION = Comparator.comparingDouble(TraceSummary::getDurationMs);
+    
+    @Value("${order-service.tracing.slow-threshold-ms:500}")
+    private long slowThresholdMs;
+    
+    @Value("${order-service.tracing.capacity:100}")
+    private int capacity;
+    
+    @Value("${order-service.tracing.max-open-traces:10000}")
+    private long maxOpenTraces;
+    
+    // Finished spans waiting for their local root, keyed by local root span ID
+    private Cache<Long, List<MutableSpan>> openTraces;
+    
+    // Slowest traces recorded, fastest at the head
+    private PriorityQueue<TraceSummary> slowTraces;
+    
+    @PostConstruct
+    public void init() {
+        openTraces = Caffeine.newBuilder()
+                .maximumSize(maxOpenTraces)
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .build();
+        slowTraces = new PriorityQueue<>(capacity, BY_DURATION);
+    }
+    
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (cause != Cause.FINISHED || !context.sampled()) {
+            return true;
+        }
+        
+        if (!context.isLocalRoot()) {
+            openTraces.asMap().computeIfAbsent(context.localRootId(), id -> Collections.synchronizedList(new ArrayList<>())).add(span);
+            return true;
+        }
+        
+        List<MutableSpan> children = openTraces.asMap().remove(context.localRootId());
+        long durationMicros = span.finishTimestamp() - span.startTimestamp();
+        if (durationMicros >= slowThresholdMs * 1000) {
+            record(toSummary(span, children == null ? List.of() : children));
+        }
+        return true;
+    }
+    
+    /**
+     * @return The recorded slow traces, slowest first
+     */
+    public synchronized List<TraceSummary> slowest() {
+        return slowTraces.stream()
+                .sorted(BY_DURATION.reversed())
+                .collect(Collectors.toList());
+    }
+    
+    private synchronized void record(TraceSummary trace) {
+        if (slowTraces.size() >= capacity) {
+            if (BY_DURATION.compare(trace, slowTraces.peek()) <= 0) {
+                // Not slower than any trace kept
+                return;
+            }
+            slowTraces.poll();
+        }
+        slowTraces.add(trace);
+        log.debug("Recorded slow trace {} ({}, {}ms)", trace.getTraceId(), trace.getName(), trace.getDurationMs());
+    }
+    
+    private TraceSummary toSummary(MutableSpan root, List<MutableSpan> children) {
+        List<MutableSpan> spans = new ArrayList<>(children.size() + 1);
+        spans.add(root);
+        synchronized (children) {
+            spans.addAll(children);
+        }
+        spans.sort(Comparator.comparingLong(MutableSpan::startTimestamp));
+        
+        long rootStart = root.startTimestamp();
+        return TraceSummary.builder()
+                .traceId(root.traceId())
+                .name(root.name())
+                .startedAt(Instant.EPOCH.plusNanos(rootStart * 1000))
+                .durationMs(toMillis(root.finishTimestamp() - rootStart))
+                .spans(spans.stream()
+                        .map(span -> TraceSummary.SpanSummary.builder()
+                                .spanId(span.id())
+                                .parentId(span.parentId())
+                                .name(span.name())
+                                .kind(span.kind() == null ? null : span.kind().name())
+                                .startOffsetMs(toMillis(span.startTimestamp() - rootStart))
+                                .durationMs(toMillis(span.finishTimestamp() - span.startTimestamp()))
+                                .error(span.error() == null ? span.tag("error") : span.error().toString())
+                                .tags(tagsOf(span))
+                                .build())
+                        .collect(Collectors.toList()))
+                .build();
+    }
+    
+    private static Map<String, String> tagsOf(MutableSpan span) {
+        Map<String, String> tags = new TreeMap<>();
+        span.forEachTag((target, key, value) -> target.put(key, value), tags);
+        return tags.isEmpty() ? null : tags;
+    }
+    
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,325 @@
+package com.ecommerce.order.scheduler;
+
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderItemRequest;
+import com.ecommerce.order.repository.OrderRepository;
+import com.ecommerce.order.repository.RetryCandidate;
+import com.ecommerce.order.service.AdaptiveConcurrencyLimiter;
+import com.ecommerce.order.service.OrderService;
+import com.ecommerce.order.service.OrderTracer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs several retry scheduler instances, each with its own lease owner, against one database and
+ * proves that every due order is leased and reserved by exactly one of them, that a live lease is
+ * not taken from its owner, and that the lease of an instance that stopped renewing it is taken
+ * over once it has expired. The instances are built by hand the way Spring builds the single one,
+ * and share the context's services.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        // Keep the context's own scheduler out of the way; the instances under test are run directly
+        "order-service.scheduler.retry-rate-ms=3600000",
+        // Orders are left leased; other test contexts must not find them due for a retry
+        "spring.datasource.url=jdbc:h2:mem:retry-lease"
+})
+class RetryLeaseTest {
+
+    private static final InventoryStub inventory = InventoryStub.start();
+
+    private static final int LEASE_BATCH_SIZE = 5;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    private AdaptiveConcurrencyLimiter concurrencyLimiter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private OrderTracer orderTracer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Instance> instances = new ArrayList<>();
+
+    @DynamicPropertySource
+    static void inventoryUrl(DynamicPropertyRegistry registry) {
+        registry.add("external-service.inventory.url", inventory::url);
+    }
+
+    @AfterAll
+    static void stopInventory() {
+        inventory.stop();
+    }
+
+    @BeforeEach
+    void reset() {
+        inventory.reset();
+        // Orders left pending by an earlier test would be leased along with this test's orders
+        jdbcTemplate.update("update orders set status = 'INVALID' where status = 'PENDING_RESERVING_STOCK'");
+    }
+
+    @AfterEach
+    void stopInstances() {
+        instances.forEach(instance -> instance.engine().shutdown());
+        instances.clear();
+    }
+
+    @Test
+    void eachDueOrderIsLeasedAndReservedByExactlyOneInstance() throws Exception {
+        List<UUID> orderIds = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            orderIds.add(dueOrder());
+        }
+        List<Instance> schedulers = List.of(instance("instance-a"), instance("instance-b"), instance("instance-c"));
+
+        runConcurrently(schedulers);
+
+        List<UUID> leased = schedulers.stream().flatMap(instance -> instance.leased().stream()).toList();
+        assertThat(leased).containsExactlyInAnyOrderElementsOf(orderIds);
+        assertThat(schedulers).filteredOn(instance -> !instance.leased().isEmpty()).hasSizeGreaterThan(1);
+        orderIds.forEach(orderId -> {
+            assertThat(inventory.calls(orderId)).isEqualTo(1);
+            assertThat(status(orderId)).isEqualTo(OrderStatus.PENDING_PAYMENT);
+        });
+    }
+
+    @Test
+    void liveLeaseIsNotTakenFromItsOwner() {
+        UUID orderId = dueOrder();
+        Instance owner = instance("instance-a");
+        Instance other = instance("instance-b");
+        assertThat(owner.leases().leaseDueOrders(null, LEASE_BATCH_SIZE)).extracting(RetryCandidate::getId)
+                .containsExactly(orderId);
+
+        other.scheduler().retryPendingOrders();
+
+        assertThat(other.leased()).doesNotContain(orderId);
+        assertThat(other.leases().renew(orderId)).isFalse();
+        assertThat(inventory.calls(orderId)).isZero();
+        assertThat(status(orderId)).isEqualTo(OrderStatus.PENDING_RESERVING_STOCK);
+        assertThat(owner.leases().renew(orderId)).isTrue();
+    }
+
+    @Test
+    void expiredLeaseIsTakenOverByAnotherInstance() {
+        UUID orderId = dueOrder();
+        Instance crashed = instance("instance-a");
+        Instance other = instance("instance-b");
+        assertThat(crashed.leases().leaseDueOrders(null, LEASE_BATCH_SIZE)).extracting(RetryCandidate::getId)
+                .containsExactly(orderId);
+        // The owner stopped before processing the order and never renewed its lease
+        jdbcTemplate.update("update orders set lease_expires_at = ? where id = ?",
+                LocalDateTime.now().minusSeconds(1), orderId);
+
+        other.scheduler().retryPendingOrders();
+
+        assertThat(other.leased()).containsExactly(orderId);
+        assertThat(inventory.calls(orderId)).isEqualTo(1);
+        assertThat(status(orderId)).isEqualTo(OrderStatus.PENDING_PAYMENT);
+        assertThat(crashed.leases().renew(orderId)).isFalse();
+    }
+
+    /**
+     * Creates an order that waits for a reservation retry which is already due.
+     */
+    private UUID dueOrder() {
+        UUID orderId = orderService.createOrder(CreateOrderRequest.builder()
+                .customerId("customer-1")
+                .items(List.of(OrderItemRequest.builder().productId("product-1").quantity(1).build()))
+                .build()).getId();
+        jdbcTemplate.update("update orders set status = ?, reservation_attempts = 1, next_retry_at = ? where id = ?",
+                OrderStatus.PENDING_RESERVING_STOCK.name(), LocalDateTime.now().minusSeconds(1), orderId);
+        return orderId;
+    }
+
+    private OrderStatus status(UUID orderId) {
+        return OrderStatus.valueOf(jdbcTemplate.queryForObject("select status from orders where id = ?",
+                String.class, orderId));
+    }
+
+    /**
+     * Starts a scheduler run on every instance at the same moment and waits for all of them.
+     */
+    private static void runConcurrently(List<Instance> schedulers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(schedulers.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> runs = new ArrayList<>();
+            for (Instance instance : schedulers) {
+                runs.add(executor.submit(() -> {
+                    start.await();
+                    instance.scheduler().retryPendingOrders();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> run : runs) {
+                run.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Builds a scheduler instance with its own lease owner and retry engine, which records the
+     * orders it leases.
+     */
+    private Instance instance(String owner) {
+        List<UUID> leased = new CopyOnWriteArrayList<>();
+        RetryLeaseManager leases = new RetryLeaseManager(orderRepository, transactionTemplate, meterRegistry) {
+            @Override
+            public List<RetryCandidate> leaseDueOrders(RetryCandidate after, int limit) {
+                List<RetryCandidate> batch = super.leaseDueOrders(after, limit);
+                batch.forEach(order -> leased.add(order.getId()));
+                return batch;
+            }
+        };
+        ReflectionTestUtils.setField(leases, "configuredOwner", owner);
+        ReflectionTestUtils.setField(leases, "leaseDurationMs", 60000L);
+        leases.init();
+
+        OrderRetryEngine engine = new OrderRetryEngine(orderService, circuitBreakerRegistry, concurrencyLimiter,
+                meterRegistry, environment, orderTracer);
+        ReflectionTestUtils.setField(engine, "parallelism", 4);
+        ReflectionTestUtils.setField(engine, "ratePerSecond", 1000.0);
+        ReflectionTestUtils.setField(engine, "burst", 1000.0);
+        ReflectionTestUtils.setField(engine, "limiterWaitMs", 5000L);
+        ReflectionTestUtils.setField(engine, "progressLogInterval", 500);
+        engine.init();
+
+        OrderProcessingScheduler scheduler = new OrderProcessingScheduler(orderRepository, orderService, engine,
+                leases, meterRegistry);
+        ReflectionTestUtils.setField(scheduler, "maxRetryMinutes", 60);
+        ReflectionTestUtils.setField(scheduler, "maxAttempts", 5);
+        ReflectionTestUtils.setField(scheduler, "pageSize", 500);
+        ReflectionTestUtils.setField(scheduler, "leaseEnabled", true);
+        ReflectionTestUtils.setField(scheduler, "leaseBatchSize", LEASE_BATCH_SIZE);
+
+        Instance instance = new Instance(leases, engine, scheduler, leased);
+        instances.add(instance);
+        return instance;
+    }
+
+    private record Instance(RetryLeaseManager leases, OrderRetryEngine engine, OrderProcessingScheduler scheduler,
+                            List<UUID> leased) {
+    }
+
+    /**
+     * Inventory stub that confirms every reservation after a short delay, so that the runs of
+     * the instances overlap, and counts the calls per order.
+     */
+    private static final class InventoryStub {
+
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+
+        private final HttpServer server;
+
+        private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+        private InventoryStub(HttpServer server) {
+            this.server = server;
+        }
+
+        static InventoryStub start() {
+            try {
+                HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+                InventoryStub stub = new InventoryStub(server);
+                server.createContext("/api/inventory/reserve", stub::reserve);
+                server.setExecutor(Executors.newCachedThreadPool());
+                server.start();
+                return stub;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        String url() {
+            return "http://localhost:" + server.getAddress().getPort() + "/api/inventory";
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        void reset() {
+            calls.clear();
+        }
+
+        int calls(UUID orderId) {
+            AtomicInteger count = calls.get(orderId.toString());
+            return count == null ? 0 : count.get();
+        }
+
+        private void reserve(HttpExchange exchange) throws IOException {
+            String orderId = MAPPER.readTree(exchange.getRequestBody()).path("orderId").asText();
+            calls.computeIfAbsent(orderId, id -> new AtomicInteger()).incrementAndGet();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            byte[] body = MAPPER.writeValueAsBytes(MAPPER.createObjectNode()
+                    .put("orderId", orderId)
+                    .put("success", true)
+                    .put("message", "Stock reserved"));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        }
+    }
+}
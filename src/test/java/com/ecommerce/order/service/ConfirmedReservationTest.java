@@ -0,0 +1,196 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderItemRequest;
+import com.ecommerce.order.dto.OrderResponse;
+import com.ecommerce.order.repository.OrderRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+
+/**
+ * Proves that a reservation inventory has confirmed is not made again when writing it back to
+ * the order fails: the next attempt applies the confirmation remembered by
+ * {@link ConfirmedReservationCache}. Reservations are batched, so it also checks that each batch
+ * entry carries its order ID as its idempotency key.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "external-service.inventory.batch.enabled=true",
+        // Keep the retry scheduler away from the orders under test
+        "order-service.scheduler.retry-rate-ms=3600000"
+})
+class ConfirmedReservationTest {
+
+    private static final InventoryStub inventory = InventoryStub.start();
+
+    @Autowired
+    private OrderService orderService;
+
+    @SpyBean
+    private OrderRepository orderRepository;
+
+    @DynamicPropertySource
+    static void inventoryUrl(DynamicPropertyRegistry registry) {
+        registry.add("external-service.inventory.url", inventory::url);
+    }
+
+    @AfterAll
+    static void stopInventory() {
+        inventory.stop();
+    }
+
+    @BeforeEach
+    void resetInventory() {
+        inventory.reset();
+    }
+
+    @Test
+    void failedWriteBackIsAppliedFromTheCacheWithoutCallingInventoryAgain() {
+        OrderResponse order = orderService.createOrder(orderRequest());
+        doThrow(new DataAccessResourceFailureException("Connection lost while writing the result"))
+                .when(orderRepository)
+                .transitionStatus(eq(order.getId()), any(), eq(OrderStatus.PENDING_PAYMENT), any(), any(), any());
+
+        assertThatThrownBy(() -> orderService.processOrder(order.getId())).isInstanceOf(DataAccessException.class);
+        assertThat(orderService.getOrder(order.getId()).getStatus()).isEqualTo(OrderStatus.PENDING_RESERVING_STOCK);
+        assertThat(inventory.calls(order.getId())).isEqualTo(1);
+
+        Mockito.reset(orderRepository);
+        OrderResponse retried = orderService.processOrder(order.getId());
+
+        assertThat(retried.getStatus()).isEqualTo(OrderStatus.PENDING_PAYMENT);
+        assertThat(inventory.calls(order.getId())).isEqualTo(1);
+    }
+
+    @Test
+    void batchEntriesCarryTheirOrderIdAsIdempotencyKey() {
+        List<UUID> orderIds = List.of(
+                orderService.createOrder(orderRequest()).getId(),
+                orderService.createOrder(orderRequest()).getId(),
+                orderService.createOrder(orderRequest()).getId());
+
+        List<OrderResponse> processed = orderIds.stream()
+                .map(orderId -> CompletableFuture.supplyAsync(() -> orderService.processOrder(orderId)))
+                .toList().stream()
+                .map(CompletableFuture::join)
+                .toList();
+
+        assertThat(processed).extracting(OrderResponse::getStatus).containsOnly(OrderStatus.PENDING_PAYMENT);
+        assertThat(inventory.idempotencyKeys()).hasSize(orderIds.size());
+        orderIds.forEach(orderId ->
+                assertThat(inventory.idempotencyKeys()).containsEntry(orderId.toString(), orderId.toString()));
+    }
+
+    private static CreateOrderRequest orderRequest() {
+        return CreateOrderRequest.builder()
+                .customerId("customer-1")
+                .items(List.of(OrderItemRequest.builder().productId("product-1").quantity(2).build()))
+                .build();
+    }
+
+    /**
+     * Inventory stub for the batch endpoint that confirms every entry and records, by order ID,
+     * how often the order was sent and the idempotency key its entry carried.
+     */
+    private static final class InventoryStub {
+
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+
+        private final HttpServer server;
+
+        private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+        private final Map<String, String> idempotencyKeys = new ConcurrentHashMap<>();
+
+        private InventoryStub(HttpServer server) {
+            this.server = server;
+        }
+
+        static InventoryStub start() {
+            try {
+                HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+                InventoryStub stub = new InventoryStub(server);
+                server.createContext("/api/inventory/reserve/batch", stub::reserveBatch);
+                server.setExecutor(Executors.newCachedThreadPool());
+                server.start();
+                return stub;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        String url() {
+            return "http://localhost:" + server.getAddress().getPort() + "/api/inventory";
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        void reset() {
+            calls.clear();
+            idempotencyKeys.clear();
+        }
+
+        int calls(UUID orderId) {
+            AtomicInteger count = calls.get(orderId.toString());
+            return count == null ? 0 : count.get();
+        }
+
+        Map<String, String> idempotencyKeys() {
+            return idempotencyKeys;
+        }
+
+        private void reserveBatch(HttpExchange exchange) throws IOException {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+
+            ArrayNode results = MAPPER.createArrayNode();
+            for (JsonNode reservation : request.path("reservations")) {
+                String orderId = reservation.path("orderId").asText();
+                calls.computeIfAbsent(orderId, id -> new AtomicInteger()).incrementAndGet();
+                idempotencyKeys.put(orderId, reservation.path("idempotencyKey").asText());
+                results.addObject()
+                        .put("orderId", orderId)
+                        .put("success", true)
+                        .put("message", "Stock reserved");
+            }
+
+            byte[] body = MAPPER.writeValueAsBytes(MAPPER.createObjectNode().set("results", results));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        }
+    }
+}
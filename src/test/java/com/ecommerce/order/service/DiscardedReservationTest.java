@@ -0,0 +1,222 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderItemRequest;
+import com.ecommerce.order.dto.OrderResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Proves that stock inventory confirms for an order that was marked INVALID while the call was in
+ * flight is released rather than left held, and that an order whose last attempt may still be in
+ * flight is not marked INVALID for running out of attempts. The inventory stub lets each test
+ * change the order while its reservation is in flight, then confirms it.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        // Keep the retry scheduler away from the orders under test
+        "order-service.scheduler.retry-rate-ms=3600000",
+        "order-service.scheduler.max-attempts=5",
+        // The orders are left pending; other test contexts must not find them due for a retry
+        "spring.datasource.url=jdbc:h2:mem:discarded-reservation"
+})
+class DiscardedReservationTest {
+
+    private static final InventoryStub inventory = InventoryStub.start();
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void inventoryUrl(DynamicPropertyRegistry registry) {
+        registry.add("external-service.inventory.url", inventory::url);
+    }
+
+    @AfterAll
+    static void stopInventory() {
+        inventory.stop();
+    }
+
+    @BeforeEach
+    void resetInventory() {
+        inventory.reset();
+    }
+
+    @Test
+    void lateConfirmationOfAnInvalidOrderIsReleased() {
+        inventory.whileReserving(orderId -> setStatus(orderId, OrderStatus.INVALID));
+        OrderResponse order = orderService.createOrder(orderRequest());
+
+        OrderResponse processed = orderService.processOrder(order.getId());
+
+        assertThat(processed.getStatus()).isEqualTo(OrderStatus.INVALID);
+        assertThat(inventory.released()).containsExactly(order.getId());
+    }
+
+    @Test
+    void lateConfirmationsOfInvalidOrdersInABatchAreReleased() {
+        inventory.whileReserving(orderId -> setStatus(orderId, OrderStatus.INVALID));
+        List<UUID> orderIds = List.of(
+                orderService.createOrder(orderRequest()).getId(),
+                orderService.createOrder(orderRequest()).getId());
+
+        orderService.processOrders(orderIds);
+
+        assertThat(inventory.released()).containsExactlyInAnyOrderElementsOf(orderIds);
+    }
+
+    @Test
+    void lateConfirmationOfAConfirmedOrderKeepsTheStock() {
+        inventory.whileReserving(orderId -> setStatus(orderId, OrderStatus.PENDING_PAYMENT));
+        OrderResponse order = orderService.createOrder(orderRequest());
+
+        OrderResponse processed = orderService.processOrder(order.getId());
+
+        assertThat(processed.getStatus()).isEqualTo(OrderStatus.PENDING_PAYMENT);
+        assertThat(inventory.released()).isEmpty();
+    }
+
+    @Test
+    void orderOutOfAttemptsIsMarkedInvalidOnlyOnceItsLastAttemptIsDue() {
+        OrderResponse order = orderService.createOrder(orderRequest());
+        exhaustAttempts(order.getId(), LocalDateTime.now().plusHours(1));
+
+        assertThat(orderService.processOrder(order.getId()).getStatus()).isEqualTo(OrderStatus.PENDING_RESERVING_STOCK);
+
+        exhaustAttempts(order.getId(), LocalDateTime.now().minusSeconds(1));
+
+        assertThat(orderService.processOrder(order.getId()).getStatus()).isEqualTo(OrderStatus.INVALID);
+        assertThat(inventory.reservations()).isZero();
+    }
+
+    private void setStatus(UUID orderId, OrderStatus status) {
+        jdbcTemplate.update("update orders set status = ? where id = ?", status.name(), orderId);
+    }
+
+    private void exhaustAttempts(UUID orderId, LocalDateTime nextRetryAt) {
+        jdbcTemplate.update("update orders set status = ?, reservation_attempts = 5, next_retry_at = ? where id = ?",
+                OrderStatus.PENDING_RESERVING_STOCK.name(), nextRetryAt, orderId);
+    }
+
+    private static CreateOrderRequest orderRequest() {
+        return CreateOrderRequest.builder()
+                .customerId("customer-1")
+                .items(List.of(OrderItemRequest.builder().productId("product-1").quantity(1).build()))
+                .build();
+    }
+
+    /**
+     * Inventory stub that runs a test hook for each reservation before confirming it, and records
+     * the orders whose stock was released.
+     */
+    private static final class InventoryStub {
+
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+
+        private final HttpServer server;
+
+        private final AtomicInteger reservations = new AtomicInteger();
+
+        private final List<UUID> released = new CopyOnWriteArrayList<>();
+
+        private volatile Consumer<UUID> whileReserving = orderId -> { };
+
+        private InventoryStub(HttpServer server) {
+            this.server = server;
+        }
+
+        static InventoryStub start() {
+            try {
+                HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+                InventoryStub stub = new InventoryStub(server);
+                server.createContext("/api/inventory/reserve", stub::reserve);
+                server.createContext("/api/inventory/release", stub::release);
+                server.setExecutor(Executors.newCachedThreadPool());
+                server.start();
+                return stub;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        String url() {
+            return "http://localhost:" + server.getAddress().getPort() + "/api/inventory";
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        void reset() {
+            reservations.set(0);
+            released.clear();
+            whileReserving = orderId -> { };
+        }
+
+        void whileReserving(Consumer<UUID> hook) {
+            whileReserving = hook;
+        }
+
+        int reservations() {
+            return reservations.get();
+        }
+
+        List<UUID> released() {
+            return released;
+        }
+
+        private void reserve(HttpExchange exchange) throws IOException {
+            reservations.incrementAndGet();
+            String orderId = MAPPER.readTree(exchange.getRequestBody()).path("orderId").asText();
+            whileReserving.accept(UUID.fromString(orderId));
+
+            respond(exchange, MAPPER.createObjectNode()
+                    .put("orderId", orderId)
+                    .put("success", true)
+                    .put("message", "Stock reserved"));
+        }
+
+        private void release(HttpExchange exchange) throws IOException {
+            int count = 0;
+            for (JsonNode orderId : MAPPER.readTree(exchange.getRequestBody()).path("orderIds")) {
+                released.add(UUID.fromString(orderId.asText()));
+                count++;
+            }
+            respond(exchange, MAPPER.createObjectNode().put("released", count));
+        }
+
+        private static void respond(HttpExchange exchange, JsonNode response) throws IOException {
+            byte[] body = MAPPER.writeValueAsBytes(response);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderItemRequest;
+import com.ecommerce.order.dto.OrderResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Proves that a reservation retried after a lost answer does not reserve the stock twice. The
+ * inventory stub reserves on the first call for an order and then fails it, either by answering
+ * after the client has timed out or with a 503; it reserves at most once per Idempotency-Key and
+ * answers repeated keys with the reservation it already made.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "external-service.inventory.timeout=500",
+        "resilience4j.retry.instances.inventoryService.waitDuration=100ms"
+})
+class InventoryIdempotentRetryTest {
+
+    private static final InventoryStub inventory = InventoryStub.start();
+
+    @Autowired
+    private OrderService orderService;
+
+    @DynamicPropertySource
+    static void inventoryUrl(DynamicPropertyRegistry registry) {
+        registry.add("external-service.inventory.url", inventory::url);
+    }
+
+    @AfterAll
+    static void stopInventory() {
+        inventory.stop();
+    }
+
+    @BeforeEach
+    void resetInventory() {
+        inventory.reset();
+    }
+
+    @ParameterizedTest
+    @EnumSource(Fault.class)
+    void blockingRetryReservesOnceWithTheSameIdempotencyKey(Fault fault) {
+        inventory.failFirstCallWith(fault);
+        OrderResponse order = orderService.createOrder(orderRequest());
+
+        OrderResponse processed = orderService.processOrder(order.getId());
+
+        assertReservedOnceWithOneKey(order, processed);
+    }
+
+    @ParameterizedTest
+    @EnumSource(Fault.class)
+    void reactiveRetryReservesOnceWithTheSameIdempotencyKey(Fault fault) {
+        inventory.failFirstCallWith(fault);
+        OrderResponse order = orderService.createOrder(orderRequest());
+
+        OrderResponse processed = orderService.processOrderAsync(order.getId()).join();
+
+        assertReservedOnceWithOneKey(order, processed);
+    }
+
+    private void assertReservedOnceWithOneKey(OrderResponse order, OrderResponse processed) {
+        assertThat(processed.getStatus()).isEqualTo(OrderStatus.PENDING_PAYMENT);
+        assertThat(inventory.reservations()).isEqualTo(1);
+        assertThat(inventory.idempotencyKeys())
+                .hasSizeGreaterThanOrEqualTo(2)
+                .containsOnly(order.getId().toString());
+    }
+
+    private static CreateOrderRequest orderRequest() {
+        return CreateOrderRequest.builder()
+                .customerId("customer-1")
+                .items(List.of(OrderItemRequest.builder().productId("product-1").quantity(2).build()))
+                .build();
+    }
+
+    enum Fault {
+        // The stock is reserved, but the answer arrives after the client has given up
+        TIMEOUT,
+        // The stock is reserved, but the answer is lost behind a 503
+        UNAVAILABLE
+    }
+
+    /**
+     * Inventory stub that fails the first call it receives after reserving its stock.
+     */
+    private static final class InventoryStub {
+
+        private final HttpServer server;
+
+        private final List<String> idempotencyKeys = new CopyOnWriteArrayList<>();
+
+        private final Map<String, Boolean> reserved = new ConcurrentHashMap<>();
+
+        private final AtomicInteger reservations = new AtomicInteger();
+
+        private volatile Fault fault;
+
+        private InventoryStub(HttpServer server) {
+            this.server = server;
+        }
+
+        static InventoryStub start() {
+            try {
+                HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+                InventoryStub stub = new InventoryStub(server);
+                server.createContext("/api/inventory/reserve", stub::reserve);
+                // A call held back past the client timeout must not hold up the retry
+                server.setExecutor(Executors.newCachedThreadPool());
+                server.start();
+                return stub;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        String url() {
+            return "http://localhost:" + server.getAddress().getPort() + "/api/inventory";
+        }
+
+        void stop() {
+            server.stop(0);
+        }
+
+        void reset() {
+            idempotencyKeys.clear();
+            reserved.clear();
+            reservations.set(0);
+            fault = null;
+        }
+
+        void failFirstCallWith(Fault fault) {
+            this.fault = fault;
+        }
+
+        int reservations() {
+            return reservations.get();
+        }
+
+        List<String> idempotencyKeys() {
+            return idempotencyKeys;
+        }
+
+        private void reserve(HttpExchange exchange) throws IOException {
+            exchange.getRequestBody().readAllBytes();
+            String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+            idempotencyKeys.add(String.valueOf(key));
+
+            boolean firstCall = key != null && reserved.putIfAbsent(key, true) == null;
+            if (firstCall) {
+                reservations.incrementAndGet();
+            }
+
+            Fault injected = firstCall ? fault : null;
+            if (injected == Fault.UNAVAILABLE) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            if (injected == Fault.TIMEOUT) {
+                sleep(1500);
+            }
+
+            byte[] body = ("{\"orderId\":\"" + key + "\",\"success\":true,\"message\":\"Stock reserved\",\"items\":[]}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            try {
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } catch (IOException ex) {
+                // The client gave up on this call
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderItemRequest;
+import com.ecommerce.order.dto.OrderResponse;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Proves that an inventory outage leaves the order pending for a retry instead of marking it
+ * INVALID, both once the retries are exhausted and while the circuit breaker is open. Inventory
+ * is pointed at a port nothing listens on.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "resilience4j.retry.instances.inventoryService.waitDuration=10ms",
+        // Keep the retry scheduler away from the orders under test
+        "order-service.scheduler.retry-rate-ms=3600000",
+        // The orders are left pending; other test contexts must not find them due for a retry
+        "spring.datasource.url=jdbc:h2:mem:inventory-outage"
+})
+class InventoryOutageTest {
+
+    private static final int CLOSED_PORT = closedPort();
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private CircuitBreaker circuitBreaker;
+
+    @DynamicPropertySource
+    static void inventoryUrl(DynamicPropertyRegistry registry) {
+        registry.add("external-service.inventory.url", () -> "http://localhost:" + CLOSED_PORT + "/api/inventory");
+    }
+
+    @BeforeEach
+    void closeCircuit() {
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker("inventoryService");
+        circuitBreaker.reset();
+    }
+
+    @AfterEach
+    void resetCircuit() {
+        circuitBreaker.reset();
+    }
+
+    @Test
+    void exhaustedRetriesLeaveTheOrderPending() {
+        OrderResponse order = orderService.createOrder(orderRequest());
+
+        assertPending(orderService.processOrder(order.getId()));
+    }
+
+    @Test
+    void exhaustedReactiveRetriesLeaveTheOrderPending() {
+        OrderResponse order = orderService.createOrder(orderRequest());
+
+        assertPending(orderService.processOrderAsync(order.getId()).join());
+    }
+
+    @Test
+    void openCircuitLeavesTheOrderPending() {
+        circuitBreaker.transitionToForcedOpenState();
+        OrderResponse order = orderService.createOrder(orderRequest());
+
+        assertPending(orderService.processOrder(order.getId()));
+    }
+
+    @Test
+    void openCircuitLeavesTheReactiveOrderPending() {
+        circuitBreaker.transitionToForcedOpenState();
+        OrderResponse order = orderService.createOrder(orderRequest());
+
+        assertPending(orderService.processOrderAsync(order.getId()).join());
+    }
+
+    private void assertPending(OrderResponse processed) {
+        assertThat(processed.getStatus()).isEqualTo(OrderStatus.PENDING_RESERVING_STOCK);
+        assertThat(orderService.getOrder(processed.getId()).getStatus()).isEqualTo(OrderStatus.PENDING_RESERVING_STOCK);
+    }
+
+    private static CreateOrderRequest orderRequest() {
+        return CreateOrderRequest.builder()
+                .customerId("outage-" + UUID.randomUUID())
+                .items(List.of(OrderItemRequest.builder().productId("product-1").quantity(1).build()))
+                .build();
+    }
+
+    private static int closedPort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderImportResult;
+import com.ecommerce.order.dto.OrderImportResult.Outcome;
+import com.ecommerce.order.dto.OrderItemRequest;
+import com.ecommerce.order.dto.OrderResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Proves that a chunk mixing orders with and without an idempotency key saves every order at most
+ * once when a keyed order fails. The failing order's key is longer than its column, so its insert
+ * is rejected by the database.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        // Keep the retry scheduler away from the imported orders
+        "order-service.scheduler.retry-rate-ms=3600000",
+        // The orders are left pending; other test contexts must not find them due for a retry
+        "spring.datasource.url=jdbc:h2:mem:order-importer"
+})
+class OrderImporterTest {
+
+    @Autowired
+    private OrderImporter orderImporter;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void failingKeyedOrderDoesNotSaveTheOtherOrdersTwice() throws IOException {
+        String customerId = "import-" + UUID.randomUUID();
+        List<CreateOrderRequest> orders = List.of(
+                orderRequest(customerId, null),
+                orderRequest(customerId, "k".repeat(300)),
+                orderRequest(customerId, null),
+                orderRequest(customerId, UUID.randomUUID().toString()));
+
+        List<OrderImportResult> results = importOrders(orders);
+
+        assertThat(results).extracting(OrderImportResult::getOutcome)
+                .containsExactly(Outcome.CREATED, Outcome.FAILED, Outcome.CREATED, Outcome.CREATED);
+        assertThat(orderService.getOrdersByCustomer(customerId))
+                .extracting(OrderResponse::getId)
+                .containsExactlyInAnyOrder(results.get(0).getOrderId(), results.get(2).getOrderId(),
+                        results.get(3).getOrderId());
+    }
+
+    private List<OrderImportResult> importOrders(List<CreateOrderRequest> orders) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (CreateOrderRequest order : orders) {
+            body.append(objectMapper.writeValueAsString(order)).append('\n');
+        }
+
+        List<OrderImportResult> results = new ArrayList<>();
+        orderImporter.importOrders(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)),
+                results::addAll);
+        return results;
+    }
+
+    private static CreateOrderRequest orderRequest(String customerId, String idempotencyKey) {
+        return CreateOrderRequest.builder()
+                .customerId(customerId)
+                .idempotencyKey(idempotencyKey)
+                .items(List.of(OrderItemRequest.builder().productId("product-1").quantity(1).build()))
+                .build();
+    }
+}
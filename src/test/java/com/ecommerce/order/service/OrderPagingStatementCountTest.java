@@ -0,0 +1,115 @@
+package com.ecommerce.order.service;
+
+import com.ecommerce.order.domain.OrderStatus;
+import com.ecommerce.order.dto.CreateOrderRequest;
+import com.ecommerce.order.dto.OrderItemRequest;
+import com.ecommerce.order.dto.OrderPage;
+import com.ecommerce.order.dto.OrderResponse;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Proves that the paged customer and status listings load a page with a fixed number of
+ * statements however large the page is: one for the page's order IDs and one for the orders
+ * with their items, instead of one more per order for its items.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        // Keep the background tasks from issuing statements while a page is being counted
+        "order-service.scheduler.retry-rate-ms=3600000",
+        "order-service.reservation-expiry.sweep-interval-ms=3600000"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderPagingStatementCountTest {
+
+    private static final int ORDERS = 101;
+
+    private static final int ITEMS_PER_ORDER = 3;
+
+    private static final long STATEMENTS_PER_PAGE = 2;
+
+    private final String customerId = "paging-" + UUID.randomUUID();
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private OrderStatus createdStatus;
+
+    @BeforeAll
+    void createOrders() {
+        List<OrderResponse> created = IntStream.range(0, ORDERS)
+                .mapToObj(i -> orderService.createOrder(orderRequest()))
+                .toList();
+        createdStatus = created.get(0).getStatus();
+    }
+
+    @Test
+    void customerPageStatementsDoNotGrowWithThePageSize() {
+        assertConstantStatementsPerPage(
+                () -> orderService.getOrdersByCustomer(customerId, null, 10),
+                () -> orderService.getOrdersByCustomer(customerId, null, 100));
+    }
+
+    @Test
+    void statusPageStatementsDoNotGrowWithThePageSize() {
+        assertConstantStatementsPerPage(
+                () -> orderService.getOrdersByStatus(createdStatus, null, 10),
+                () -> orderService.getOrdersByStatus(createdStatus, null, 100));
+    }
+
+    @Test
+    void nextPageStatementsDoNotGrowWithThePageSize() {
+        String afterTen = orderService.getOrdersByCustomer(customerId, null, 10).getNextCursor();
+        String afterOne = orderService.getOrdersByCustomer(customerId, null, 1).getNextCursor();
+
+        assertConstantStatementsPerPage(
+                () -> orderService.getOrdersByCustomer(customerId, afterTen, 10),
+                () -> orderService.getOrdersByCustomer(customerId, afterOne, 100));
+    }
+
+    private void assertConstantStatementsPerPage(Supplier<OrderPage> smallPage, Supplier<OrderPage> largePage) {
+        assertThat(countStatements(smallPage, 10)).isEqualTo(STATEMENTS_PER_PAGE);
+        assertThat(countStatements(largePage, 100)).isEqualTo(STATEMENTS_PER_PAGE);
+    }
+
+    /**
+     * Loads a page, checks that it is full and carries every item, and returns the number of
+     * statements prepared to load it.
+     */
+    private long countStatements(Supplier<OrderPage> loadPage, int pageSize) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        OrderPage page = loadPage.get();
+
+        long statements = statistics.getPrepareStatementCount();
+        assertThat(page.getOrders()).hasSize(pageSize);
+        assertThat(page.getOrders()).allSatisfy(order -> assertThat(order.getItems()).hasSize(ITEMS_PER_ORDER));
+        return statements;
+    }
+
+    private CreateOrderRequest orderRequest() {
+        return CreateOrderRequest.builder()
+                .customerId(customerId)
+                .items(IntStream.range(0, ITEMS_PER_ORDER)
+                        .mapToObj(i -> OrderItemRequest.builder().productId("product-" + i).quantity(1).build())
+                        .toList())
+                .build();
+    }
+}